@@ -2,12 +2,14 @@ package com.edtools.edtoolsperks;
 
 import com.edtools.edtoolsperks.commands.MainCommand;
 import com.edtools.edtoolsperks.config.ConfigManager;
+import com.edtools.edtoolsperks.config.ConfigWatcher;
 import com.edtools.edtoolsperks.database.DatabaseManager;
 import com.edtools.edtoolsperks.gui.GUIManager;
 import com.edtools.edtoolsperks.integration.EdToolsIntegration;
 import com.edtools.edtoolsperks.listeners.InventoryListener;
 import com.edtools.edtoolsperks.listeners.PlayerListener;
 import com.edtools.edtoolsperks.perks.PerkManager;
+import com.edtools.edtoolsperks.profile.ProfileManager;
 import com.edtools.edtoolsperks.utils.MessageUtils;
 import org.bukkit.NamespacedKey;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -17,7 +19,9 @@ public final class EdToolsPerks extends JavaPlugin {
     private static EdToolsPerks instance;
     
     private ConfigManager configManager;
+    private ConfigWatcher configWatcher;
     private DatabaseManager databaseManager;
+    private ProfileManager profileManager;
     private PerkManager perkManager;
     private GUIManager guiManager;
     private EdToolsIntegration edToolsIntegration;
@@ -51,6 +55,15 @@ public final class EdToolsPerks extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (configWatcher != null) {
+            configWatcher.stop();
+        }
+
+        // Perfiles primero: necesitan la base de datos abierta para guardarse
+        if (profileManager != null) {
+            profileManager.shutdown();
+        }
+
         if (databaseManager != null) {
             databaseManager.close();
         }
@@ -84,6 +97,10 @@ public final class EdToolsPerks extends JavaPlugin {
         databaseManager = new DatabaseManager(this);
         databaseManager.initialize();
         
+        // Perfiles de jugadores en memoria
+        profileManager = new ProfileManager(this);
+        profileManager.start();
+        
         // Perks
         perkManager = new PerkManager(this);
         perkManager.loadPerks();
@@ -95,6 +112,12 @@ public final class EdToolsPerks extends JavaPlugin {
         // Integración con EdTools
         edToolsIntegration = new EdToolsIntegration(this);
         edToolsIntegration.initialize();
+
+        // Recarga de perks.yml / guis.yml al guardarlos (opcional)
+        if (configManager.getConfig().getBoolean("reload.watch-files", false)) {
+            configWatcher = new ConfigWatcher(this);
+            configWatcher.start();
+        }
     }
 
     private void registerListeners() {
@@ -119,6 +142,10 @@ public final class EdToolsPerks extends JavaPlugin {
         return databaseManager;
     }
 
+    public ProfileManager getProfileManager() {
+        return profileManager;
+    }
+
     public PerkManager getPerkManager() {
         return perkManager;
     }
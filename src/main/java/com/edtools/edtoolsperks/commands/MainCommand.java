@@ -1,6 +1,11 @@
 package com.edtools.edtoolsperks.commands;
 
 import com.edtools.edtoolsperks.EdToolsPerks;
+import com.edtools.edtoolsperks.database.RollHistoryJournal;
+import com.edtools.edtoolsperks.database.RollHistoryRepository;
+import com.edtools.edtoolsperks.database.ToolPerkRecord;
+import com.edtools.edtoolsperks.perks.Perk;
+import com.edtools.edtoolsperks.perks.RollBatch;
 import com.edtools.edtoolsperks.utils.MessageUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
@@ -10,8 +15,10 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
@@ -45,8 +52,13 @@ public class MainCommand implements CommandExecutor, TabCompleter {
                 }
                 
                 plugin.getConfigManager().reloadConfigs();
-                plugin.getPerkManager().loadPerks();
-                MessageUtils.send(sender, plugin.getConfigManager().getMessage("general.reload-success"));
+                // Perks are rebuilt off the main thread and swapped in at once; rolls keep using the old set until then
+                plugin.getPerkManager().reloadPerks().thenAccept(registry ->
+                    MessageUtils.send(sender, plugin.getConfigManager().getMessage("general.reload-success"))
+                ).exceptionally(ex -> {
+                    MessageUtils.send(sender, "&cFailed to reload perks: " + ex.getMessage());
+                    return null;
+                });
             }
             
             case "help" -> showHelp(sender);
@@ -107,6 +119,84 @@ public class MainCommand implements CommandExecutor, TabCompleter {
                 regenerateUUIDCommand(player);
             }
             
+            case "stats" -> {
+                if (!sender.hasPermission("edtoolsperks.admin")) {
+                    MessageUtils.send(sender, plugin.getConfigManager().getMessage("general.no-permission"));
+                    return true;
+                }
+                
+                showStats(sender);
+            }
+            
+            case "compact" -> {
+                if (!sender.hasPermission("edtoolsperks.admin")) {
+                    MessageUtils.send(sender, plugin.getConfigManager().getMessage("general.no-permission"));
+                    return true;
+                }
+                
+                compactHistoryCommand(sender);
+            }
+            
+            case "backup" -> {
+                if (!sender.hasPermission("edtoolsperks.admin")) {
+                    MessageUtils.send(sender, plugin.getConfigManager().getMessage("general.no-permission"));
+                    return true;
+                }
+                
+                backupCommand(sender);
+            }
+            
+            case "export" -> {
+                if (!sender.hasPermission("edtoolsperks.admin")) {
+                    MessageUtils.send(sender, plugin.getConfigManager().getMessage("general.no-permission"));
+                    return true;
+                }
+                
+                exportCommand(sender, args.length >= 2 ? args[1] : null);
+            }
+            
+            case "import" -> {
+                if (!sender.hasPermission("edtoolsperks.admin")) {
+                    MessageUtils.send(sender, plugin.getConfigManager().getMessage("general.no-permission"));
+                    return true;
+                }
+                
+                if (args.length < 2) {
+                    MessageUtils.send(sender, "&cUsage: /edtoolsperks import <file>");
+                    return true;
+                }
+                
+                importCommand(sender, args[1]);
+            }
+            
+            case "replay" -> {
+                if (!sender.hasPermission("edtoolsperks.admin")) {
+                    MessageUtils.send(sender, plugin.getConfigManager().getMessage("general.no-permission"));
+                    return true;
+                }
+                
+                if (args.length < 2) {
+                    MessageUtils.send(sender, "&cUsage: /edtoolsperks replay <roll id|player>");
+                    return true;
+                }
+                
+                replayCommand(sender, args[1]);
+            }
+            
+            case "simulate" -> {
+                if (!sender.hasPermission("edtoolsperks.admin")) {
+                    MessageUtils.send(sender, plugin.getConfigManager().getMessage("general.no-permission"));
+                    return true;
+                }
+                
+                if (args.length < 2) {
+                    MessageUtils.send(sender, "&cUsage: /edtoolsperks simulate <rolls per player> [players] [tool]");
+                    return true;
+                }
+                
+                simulateCommand(sender, args[1], args.length >= 3 ? args[2] : "1000", args.length >= 4 ? args[3] : null);
+            }
+            
             default -> MessageUtils.send(sender, plugin.getConfigManager().getMessage("general.invalid-command"));
         }
 
@@ -133,6 +223,262 @@ public class MainCommand implements CommandExecutor, TabCompleter {
         helpMessages.forEach(msg -> MessageUtils.send(sender, msg));
     }
 
+    private void showStats(CommandSender sender) {
+        var db = plugin.getDatabaseManager().getExecutorStats();
+        
+        MessageUtils.send(sender, "&8&m----------&r &eEdToolsPerks Stats &8&m----------");
+        MessageUtils.send(sender, "&7DB executor: &f" + db.activeThreads() + "/" + db.poolSize() + " &7busy, queue &f"
+            + db.queueDepth() + "/" + db.queueCapacity() + " &7(" + plugin.getDatabaseManager().getExecutor().getPolicy() + ")");
+        MessageUtils.send(sender, "&7DB tasks: &f" + db.completed() + " &7done, &f" + db.failed() + " &7failed, &f"
+            + db.rejected() + " &7rejected, &f" + db.inline() + " &7inline");
+        MessageUtils.send(sender, String.format("&7DB latency: &fwait %.2fms avg / %.2fms max&7, &frun %.2fms avg / %.2fms max",
+            db.avgWaitMs(), db.maxWaitMs(), db.avgRunMs(), db.maxRunMs()));
+        
+        MessageUtils.send(sender, "&7Storage: &f" + plugin.getDatabaseManager().getStorage().getName());
+        var pool = plugin.getDatabaseManager().getPoolStats();
+        MessageUtils.send(sender, "&7DB pool: &f" + pool.active() + " &7in use, &f" + pool.idle() + " &7idle, max &f"
+            + pool.maxSize() + "&7, created &f" + pool.created());
+        MessageUtils.send(sender, String.format("&7DB pool health: &f%d &7invalid, &f%d &7timeouts, &f%d &7leaks, borrow wait &f%.2fms avg",
+            pool.validationFailures(), pool.timeouts(), pool.leaks(), pool.avgBorrowWaitMs()));
+        MessageUtils.send(sender, "&7Statement cache: &f" + pool.statementCacheHits() + " &7hits, &f" + pool.statementCacheMisses() + " &7misses");
+        
+        var toolPerks = plugin.getDatabaseManager().getToolPerkCacheStats();
+        MessageUtils.send(sender, "&7Tool perk cache: &f" + toolPerks.size() + "/" + toolPerks.maxSize() + " &7entries + &f"
+            + toolPerks.pinned() + " &7pinned, &f"
+            + toolPerks.hits() + " &7hits (&f" + toolPerks.negativeHits() + " &7no perk), &f" + toolPerks.misses()
+            + " &7misses, &f" + toolPerks.evictions() + " &7evicted");
+        
+        var history = plugin.getDatabaseManager().getHistoryJournalStats();
+        MessageUtils.send(sender, String.format("&7Roll history: &f%d &7queued, &f%d &7rows in &f%d &7flushes (&f%d &7failed, &f%d &7rows dropped), flush &f%.2fms last / %.2fms avg / %.2fms max",
+            history.queueDepth(), history.rowsWritten(), history.flushes(), history.failures(), history.dropped(),
+            history.lastFlushMs(), history.avgFlushMs(), history.maxFlushMs()));
+        
+        var backups = plugin.getDatabaseManager().getBackupService().getStats();
+        if (backups.backups() > 0 || backups.failures() > 0) {
+            MessageUtils.send(sender, String.format("&7Backups: &f%d &7done (&f%d &7failed), last &f%dKB &7in &f%dms&7, &f%.0fms avg / %dms max",
+                backups.backups(), backups.failures(), backups.lastBytes() / 1024, backups.lastDurationMs(),
+                backups.avgDurationMs(), backups.maxDurationMs()));
+        }
+        
+        MessageUtils.send(sender, "&7Profiles: &f" + plugin.getProfileManager().getLoadedCount() + " &7loaded, &f"
+            + plugin.getProfileManager().getDirtyCount() + " &7pending flush");
+    }
+
+    private void compactHistoryCommand(CommandSender sender) {
+        if (plugin.getDatabaseManager().getHistoryCompactor().isRunning()) {
+            MessageUtils.send(sender, "&cRoll history compaction is already running.");
+            return;
+        }
+        
+        MessageUtils.send(sender, "&eCompacting roll history in the background...");
+        plugin.getDatabaseManager().compactHistory().thenAccept(report -> {
+            if (report == null) {
+                MessageUtils.send(sender, "&cRoll history compaction is already running.");
+                return;
+            }
+            MessageUtils.send(sender, "&aCompacted &f" + report.rowsCompacted() + " &arows into &f" + report.dailyRowsTouched()
+                + " &adaily rows in &f" + report.durationMs() + "ms &a(" + report.chunks() + " chunks).");
+            MessageUtils.send(sender, "&7roll_history: &f" + (report.tableBytesBefore() / 1024) + "KB &7-> &f"
+                + (report.tableBytesAfter() / 1024) + "KB &7(" + (report.tableBytesFreed() / 1024) + "KB freed for reuse)");
+        }).exceptionally(ex -> {
+            MessageUtils.send(sender, "&cCompaction failed: " + ex.getMessage());
+            return null;
+        });
+    }
+
+    private void backupCommand(CommandSender sender) {
+        var backups = plugin.getDatabaseManager().getBackupService();
+        if (!backups.isSupported()) {
+            MessageUtils.send(sender, "&cOnline backups are only available for H2 databases.");
+            return;
+        }
+        if (backups.isRunning()) {
+            MessageUtils.send(sender, "&cA backup is already running.");
+            return;
+        }
+        
+        MessageUtils.send(sender, "&eBacking up the database in the background...");
+        plugin.getDatabaseManager().backup().thenAccept(report -> {
+            if (report == null) {
+                MessageUtils.send(sender, "&cA backup is already running.");
+                return;
+            }
+            MessageUtils.send(sender, "&aBackup &f" + report.fileName() + " &awritten (&f" + (report.bytes() / 1024)
+                + "KB&a, &f" + report.durationMs() + "ms&a" + (report.deleted() > 0 ? ", " + report.deleted() + " old removed" : "") + ").");
+        }).exceptionally(ex -> {
+            MessageUtils.send(sender, "&cBackup failed: " + ex.getMessage());
+            return null;
+        });
+    }
+
+    // Re-draws stored rolls from their seeds and checks they still give the same result.
+    // Accepts a roll_history id, or an online player's name for their latest rolls.
+    private void replayCommand(CommandSender sender, String target) {
+        try {
+            long id = Long.parseLong(target);
+            plugin.getDatabaseManager().getRollHistory(id).thenAccept(row -> {
+                if (row == null) {
+                    MessageUtils.send(sender, "&cNo roll with id " + id + " (compacted rolls cannot be replayed).");
+                    return;
+                }
+                sendReplay(sender, row);
+            }).exceptionally(ex -> {
+                MessageUtils.send(sender, "&cFailed to read roll history: " + ex.getMessage());
+                return null;
+            });
+            return;
+        } catch (NumberFormatException ignored) {
+            // Not an id, treat it as a player name
+        }
+        
+        Player player = Bukkit.getPlayer(target);
+        if (player == null) {
+            MessageUtils.send(sender, plugin.getConfigManager().getMessage("admin.player-not-found"));
+            return;
+        }
+        plugin.getDatabaseManager().getRecentRolls(player.getUniqueId(), 5).thenAccept(rows -> {
+            if (rows.isEmpty()) {
+                MessageUtils.send(sender, "&cNo recent rolls for " + target + ".");
+                return;
+            }
+            MessageUtils.send(sender, "&eLatest rolls of &f" + target + "&e:");
+            rows.forEach(row -> sendReplay(sender, row));
+        }).exceptionally(ex -> {
+            MessageUtils.send(sender, "&cFailed to read roll history: " + ex.getMessage());
+            return null;
+        });
+    }
+
+    private void sendReplay(CommandSender sender, RollHistoryRepository.Row row) {
+        RollHistoryJournal.Entry entry = row.entry();
+        String recorded = entry.perkName() + " " + entry.level() + (entry.guaranteed() ? " (guaranteed)" : "");
+        if (entry.seed() == null) {
+            MessageUtils.send(sender, "&7#" + row.id() + " &f" + recorded + " &8- no seed stored");
+            return;
+        }
+        
+        // Same table as the live roll: the recorded tool type, or for rows from before tool_type was
+        // stored, the tool the perk belongs to. A guaranteed roll was forced into the category it landed in.
+        Perk perk = plugin.getPerkManager().getPerk(entry.perkName());
+        String toolType = entry.toolType() != null ? entry.toolType() : perk != null ? perk.getTool() : null;
+        if (RollHistoryJournal.ALL_TOOLS.equals(toolType)) {
+            toolType = null;
+        }
+        RollBatch replay = perk != null
+            ? plugin.getPerkManager().replay(entry.seed(), toolType, entry.guaranteed() ? entry.category() : null)
+            : null;
+        if (replay == null) {
+            MessageUtils.send(sender, "&7#" + row.id() + " &f" + recorded + " &c- perk no longer exists");
+            return;
+        }
+        
+        boolean match = replay.getPerk(0).getId().equals(entry.perkName()) && replay.getLevel(0) == entry.level();
+        MessageUtils.send(sender, "&7#" + row.id() + " &f" + recorded + " &7seed &f" + Long.toHexString(entry.seed())
+            + (match ? " &a- replay matches" : " &c- replay gives " + replay.getPerk(0).getId() + " " + replay.getLevel(0)
+                + " (perks.yml changed since)"));
+    }
+
+    private void simulateCommand(CommandSender sender, String rollsArg, String playersArg, String tool) {
+        int rolls;
+        int players;
+        try {
+            rolls = Integer.parseInt(rollsArg);
+            players = Integer.parseInt(playersArg);
+        } catch (NumberFormatException e) {
+            MessageUtils.send(sender, "&cInvalid number: " + e.getMessage());
+            return;
+        }
+        
+        if (rolls <= 0 || players <= 0) {
+            MessageUtils.send(sender, "&cRolls and players must be positive!");
+            return;
+        }
+        
+        MessageUtils.send(sender, "&eSimulating &f" + ((long) rolls * players) + " &erolls in the background...");
+        plugin.getPerkManager().simulate(tool, players, rolls).thenAccept(result -> {
+            if (result == null) {
+                MessageUtils.send(sender, "&cA simulation is already running.");
+                return;
+            }
+            result.format(10).forEach(line -> MessageUtils.send(sender, "&7" + line));
+        }).exceptionally(ex -> {
+            MessageUtils.send(sender, "&cSimulation failed: " + ex.getMessage());
+            return null;
+        });
+    }
+
+    private void exportCommand(CommandSender sender, String name) {
+        if (plugin.getDatabaseManager().getDataTransfer().isRunning()) {
+            MessageUtils.send(sender, "&cAn export or import is already running.");
+            return;
+        }
+        
+        String fileName = exportFileName(name != null ? name
+            : "export-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+        if (fileName == null) {
+            MessageUtils.send(sender, "&cInvalid file name: " + name);
+            return;
+        }
+        
+        MessageUtils.send(sender, "&eExporting perk data to &f" + fileName + "&e in the background...");
+        // Write pending profile changes first so the file has current balances
+        plugin.getProfileManager().flushAll()
+            .thenCompose(ignored -> plugin.getDatabaseManager().exportData(fileName))
+            .thenAccept(report -> {
+                if (report == null) {
+                    MessageUtils.send(sender, "&cAn export or import is already running.");
+                    return;
+                }
+                MessageUtils.send(sender, "&aExported &f" + report.players() + " &aplayers, &f" + report.toolPerks()
+                    + " &atool perks and &f" + report.rollHistory() + " &aroll history rows in &f" + report.durationMs()
+                    + "ms &a(" + (report.bytes() / 1024) + "KB).");
+            }).exceptionally(ex -> {
+                MessageUtils.send(sender, "&cExport failed: " + ex.getMessage());
+                return null;
+            });
+    }
+
+    private void importCommand(CommandSender sender, String name) {
+        if (plugin.getDatabaseManager().getDataTransfer().isRunning()) {
+            MessageUtils.send(sender, "&cAn export or import is already running.");
+            return;
+        }
+        
+        String fileName = exportFileName(name);
+        if (fileName == null) {
+            MessageUtils.send(sender, "&cInvalid file name: " + name);
+            return;
+        }
+        
+        MessageUtils.send(sender, "&eImporting perk data from &f" + fileName + "&e in the background...");
+        // Flush first so online players' pending changes are not applied on top of the imported rows
+        plugin.getProfileManager().flushAll()
+            .thenCompose(ignored -> plugin.getDatabaseManager().importData(fileName))
+            .thenAccept(report -> {
+                if (report == null) {
+                    MessageUtils.send(sender, "&cAn export or import is already running.");
+                    return;
+                }
+                plugin.getProfileManager().refreshAll();
+                MessageUtils.send(sender, "&aImported &f" + report.players() + " &aplayers, &f" + report.toolPerks()
+                    + " &atool perks and &f" + report.rollHistory() + " &aroll history rows in &f" + report.durationMs() + "ms&a.");
+                if (report.rollHistorySkipped() > 0) {
+                    MessageUtils.send(sender, "&7Skipped &f" + report.rollHistorySkipped() + " &7roll history rows that were already in the database.");
+                }
+            }).exceptionally(ex -> {
+                MessageUtils.send(sender, "&cImport failed: " + ex.getMessage());
+                return null;
+            });
+    }
+
+    // Files always live in the exports folder; returns null for names that try to leave it
+    private String exportFileName(String name) {
+        if (!name.matches("[A-Za-z0-9._-]+") || name.startsWith(".")) {
+            return null;
+        }
+        return name.endsWith(".ndjson.gz") ? name : name + ".ndjson.gz";
+    }
+
     private void giveRollsCommand(CommandSender sender, String playerName, String amountStr) {
         Player target = Bukkit.getPlayer(playerName);
         UUID targetUUID;
@@ -161,7 +507,7 @@ public class MainCommand implements CommandExecutor, TabCompleter {
             return;
         }
         
-        plugin.getDatabaseManager().addPlayerRolls(targetUUID, amount).thenRun(() -> {
+        plugin.getProfileManager().addRolls(targetUUID, amount).thenRun(() -> {
             MessageUtils.send(sender, plugin.getConfigManager().getMessage("admin.gave-rolls",
                 "amount", amount, "player", targetDisplayName));
                 
@@ -184,7 +530,7 @@ public class MainCommand implements CommandExecutor, TabCompleter {
             return;
         }
         
-        plugin.getDatabaseManager().setPityCounter(targetUUID, 0).thenRun(() -> {
+        plugin.getProfileManager().setPityState(targetUUID, 0L).thenRun(() -> {
             MessageUtils.send(sender, plugin.getConfigManager().getMessage("admin.reset-pity",
                 "player", targetDisplayName));
                 
@@ -213,47 +559,35 @@ public class MainCommand implements CommandExecutor, TabCompleter {
         }
         
         // Get perk from NBT
-        String nbtPerk = plugin.getEdToolsIntegration().getToolPerk(tool);
+        ToolPerkRecord nbtPerk = plugin.getEdToolsIntegration().getToolPerk(tool);
         
         if (nbtPerk == null) {
             MessageUtils.send(player, "&cNo perk found in NBT! Tool has no perk to sync.");
             return;
         }
         
-        // Parse NBT perk
-        String[] parts = nbtPerk.split(":");
-        if (parts.length != 2) {
-            MessageUtils.send(player, "&cInvalid perk format in NBT: " + nbtPerk);
-            return;
-        }
+        String perkId = nbtPerk.perkId();
+        int level = nbtPerk.level();
         
-        try {
-            String perkId = parts[0];
-            int level = Integer.parseInt(parts[1]);
+        // Force update database with NBT data
+        plugin.getDatabaseManager().savePerkToTool(toolUUID, player.getUniqueId(), perkId, level).thenRun(() -> {
+            MessageUtils.send(player, "&aPerk synchronization completed!");
+            MessageUtils.send(player, "&7NBT Perk: &f" + nbtPerk);
+            MessageUtils.send(player, "&7Database updated to match NBT data.");
             
-            // Force update database with NBT data
-            plugin.getDatabaseManager().savePerkToTool(toolUUID, player.getUniqueId(), perkId, level).thenRun(() -> {
-                MessageUtils.send(player, "&aPerk synchronization completed!");
-                MessageUtils.send(player, "&7NBT Perk: &f" + nbtPerk);
-                MessageUtils.send(player, "&7Database updated to match NBT data.");
-                
-                // Get the perk object and reapply it to refresh the lore
-                var perk = plugin.getPerkManager().getPerk(perkId);
-                if (perk != null) {
-                    plugin.getEdToolsIntegration().applyPerkToTool(tool, perk, level);
-                    MessageUtils.send(player, "&7Lore refreshed!");
-                }
-                
-            }).exceptionally(ex -> {
-                MessageUtils.send(player, "&cFailed to sync perk: " + ex.getMessage());
-                plugin.getLogger().severe("Failed to sync perk for player " + player.getName() + ": " + ex.getMessage());
-                ex.printStackTrace();
-                return null;
-            });
+            // Get the perk object and reapply it to refresh the lore
+            var perk = plugin.getPerkManager().getPerk(perkId);
+            if (perk != null) {
+                plugin.getEdToolsIntegration().applyPerkToTool(tool, perk, level);
+                MessageUtils.send(player, "&7Lore refreshed!");
+            }
             
-        } catch (NumberFormatException e) {
-            MessageUtils.send(player, "&cInvalid perk level in NBT: " + parts[1]);
-        }
+        }).exceptionally(ex -> {
+            MessageUtils.send(player, "&cFailed to sync perk: " + ex.getMessage());
+            plugin.getLogger().severe("Failed to sync perk for player " + player.getName() + ": " + ex.getMessage());
+            ex.printStackTrace();
+            return null;
+        });
     }
 
     private void regenerateUUIDCommand(Player player) {
@@ -268,7 +602,7 @@ public class MainCommand implements CommandExecutor, TabCompleter {
         MessageUtils.send(player, "&eRegenerating UUID for your tool...");
         
         // Get current perk before regenerating UUID
-        String currentPerk = plugin.getEdToolsIntegration().getToolPerk(tool);
+        ToolPerkRecord currentPerk = plugin.getEdToolsIntegration().getToolPerk(tool);
         
         // Remove the old UUID from NBT to force regeneration
         if (tool.hasItemMeta()) {
@@ -285,32 +619,24 @@ public class MainCommand implements CommandExecutor, TabCompleter {
         
         // If the tool had a perk, reapply it with the new UUID
         if (currentPerk != null) {
-            String[] parts = currentPerk.split(":");
-            if (parts.length == 2) {
-                try {
-                    String perkId = parts[0];
-                    int level = Integer.parseInt(parts[1]);
-                    
-                    // Save perk with new UUID
-                    plugin.getDatabaseManager().savePerkToTool(newUUID, player.getUniqueId(), perkId, level).thenRun(() -> {
-                        MessageUtils.send(player, "&aPerk restored with new UUID!");
-                        MessageUtils.send(player, "&7Perk: &f" + currentPerk);
-                        
-                        // Reapply perk to refresh lore
-                        var perk = plugin.getPerkManager().getPerk(perkId);
-                        if (perk != null) {
-                            plugin.getEdToolsIntegration().applyPerkToTool(tool, perk, level);
-                        }
-                        
-                    }).exceptionally(ex -> {
-                        MessageUtils.send(player, "&cFailed to restore perk: " + ex.getMessage());
-                        return null;
-                    });
-                    
-                } catch (NumberFormatException e) {
-                    MessageUtils.send(player, "&cInvalid perk format, perk not restored: " + currentPerk);
+            String perkId = currentPerk.perkId();
+            int level = currentPerk.level();
+            
+            // Save perk with new UUID
+            plugin.getDatabaseManager().savePerkToTool(newUUID, player.getUniqueId(), perkId, level).thenRun(() -> {
+                MessageUtils.send(player, "&aPerk restored with new UUID!");
+                MessageUtils.send(player, "&7Perk: &f" + currentPerk);
+                
+                // Reapply perk to refresh lore
+                var perk = plugin.getPerkManager().getPerk(perkId);
+                if (perk != null) {
+                    plugin.getEdToolsIntegration().applyPerkToTool(tool, perk, level);
                 }
-            }
+                
+            }).exceptionally(ex -> {
+                MessageUtils.send(player, "&cFailed to restore perk: " + ex.getMessage());
+                return null;
+            });
         } else {
             MessageUtils.send(player, "&7Tool had no perk to restore.");
         }
@@ -324,7 +650,7 @@ public class MainCommand implements CommandExecutor, TabCompleter {
             List<String> subCommands = new ArrayList<>(Arrays.asList("help", "reload"));
             
             if (sender.hasPermission("edtoolsperks.admin")) {
-                subCommands.addAll(Arrays.asList("give", "reset", "sync", "regen-uuid"));
+                subCommands.addAll(Arrays.asList("give", "reset", "sync", "regen-uuid", "stats", "compact", "backup", "export", "import", "replay", "simulate"));
             }
             
             String input = args[0].toLowerCase();
@@ -333,7 +659,8 @@ public class MainCommand implements CommandExecutor, TabCompleter {
                 .forEach(completions::add);
         }
         
-        else if (args.length == 2 && (args[0].equalsIgnoreCase("give") || args[0].equalsIgnoreCase("reset"))) {
+        else if (args.length == 2 && (args[0].equalsIgnoreCase("give") || args[0].equalsIgnoreCase("reset")
+                || args[0].equalsIgnoreCase("replay"))) {
             if (sender.hasPermission("edtoolsperks.admin")) {
                 String input = args[1].toLowerCase();
                 Bukkit.getOnlinePlayers().stream()
@@ -343,6 +670,15 @@ public class MainCommand implements CommandExecutor, TabCompleter {
             }
         }
         
+        else if (args.length == 2 && args[0].equalsIgnoreCase("import")) {
+            if (sender.hasPermission("edtoolsperks.admin")) {
+                String input = args[1].toLowerCase();
+                plugin.getDatabaseManager().listExports().stream()
+                    .filter(name -> name.toLowerCase().startsWith(input))
+                    .forEach(completions::add);
+            }
+        }
+        
         else if (args.length == 3 && args[0].equalsIgnoreCase("give")) {
             if (sender.hasPermission("edtoolsperks.admin")) {
                 completions.addAll(Arrays.asList("1", "5", "10", "25", "50"));
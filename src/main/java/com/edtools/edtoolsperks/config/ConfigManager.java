@@ -2,6 +2,7 @@ package com.edtools.edtoolsperks.config;
 
 import com.edtools.edtoolsperks.EdToolsPerks;
 import com.edtools.edtoolsperks.utils.MessageUtils;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
@@ -9,14 +10,15 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ConfigManager {
 
     private final EdToolsPerks plugin;
-    private final Map<String, FileConfiguration> configs = new HashMap<>();
-    private final Map<String, File> configFiles = new HashMap<>();
+    // Concurrent: ConfigWatcher replaces single files from its own thread
+    private final Map<String, FileConfiguration> configs = new ConcurrentHashMap<>();
+    private final Map<String, File> configFiles = new ConcurrentHashMap<>();
 
     public ConfigManager(EdToolsPerks plugin) {
         this.plugin = plugin;
@@ -67,6 +69,26 @@ public class ConfigManager {
         }
     }
 
+    // Re-reads one file that is already loaded and swaps it in. Unlike loadConfig this does not
+    // fall back to an empty configuration on a YAML error: it returns null and keeps the old one,
+    // so a half-saved file never wipes out what is loaded.
+    public FileConfiguration reloadConfig(String fileName) {
+        File configFile = configFiles.get(fileName);
+        if (configFile == null || !configFile.exists()) {
+            return null;
+        }
+
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.load(configFile);
+        } catch (IOException | InvalidConfigurationException e) {
+            MessageUtils.sendConsole("&cCouldn't reload " + fileName + ", keeping the loaded version: " + e.getMessage());
+            return null;
+        }
+        configs.put(fileName, config);
+        return config;
+    }
+
     public void reloadConfigs() {
         configs.clear();
         configFiles.clear();
@@ -0,0 +1,121 @@
+package com.edtools.edtoolsperks.config;
+
+import com.edtools.edtoolsperks.EdToolsPerks;
+import com.edtools.edtoolsperks.utils.MessageUtils;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Opt-in (reload.watch-files) watcher on the plugin folder. When perks.yml or guis.yml is saved it
+// waits for the writes to settle, re-parses only that file on its own thread and hands it to the
+// owning manager, which diffs it against what is loaded and swaps the result in at once.
+// Nothing here touches the main thread.
+public class ConfigWatcher {
+
+    private final EdToolsPerks plugin;
+    private final long debounceMs;
+    // File name -> manager that applies it, in the order files are applied when several changed together
+    private final Map<String, Consumer<FileConfiguration>> handlers = new LinkedHashMap<>();
+    private WatchService watchService;
+    private Thread thread;
+
+    public ConfigWatcher(EdToolsPerks plugin) {
+        this.plugin = plugin;
+        this.debounceMs = Math.max(50L, plugin.getConfigManager().getConfig().getLong("reload.debounce-ms", 500L));
+        handlers.put("perks.yml", plugin.getPerkManager()::applyPerksFile);
+        handlers.put("guis.yml", plugin.getGuiManager()::applyGUIsFile);
+    }
+
+    public void start() {
+        Path folder = plugin.getDataFolder().toPath();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            // CREATE as well as MODIFY: editors that save through a temp file and a rename only produce a create
+            folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            MessageUtils.sendConsole("&cCouldn't watch the plugin folder for config changes: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        thread = new Thread(this::run, "EdToolsPerks-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        MessageUtils.sendConsole("&aWatching " + String.join(", ", handlers.keySet()) + " for changes");
+    }
+
+    public void stop() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            // Wakes the thread out of take() with ClosedWatchServiceException
+            watchService.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not close the config watcher: " + e.getMessage());
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<String> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+                // Debounce: keep collecting until the folder has been quiet for debounceMs
+                WatchKey next;
+                while ((next = watchService.poll(debounceMs, TimeUnit.MILLISECONDS)) != null) {
+                    collect(next, changed);
+                }
+
+                for (Map.Entry<String, Consumer<FileConfiguration>> handler : handlers.entrySet()) {
+                    if (changed.contains(handler.getKey())) {
+                        apply(handler.getKey(), handler.getValue());
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // stop() was called
+        }
+    }
+
+    private void collect(WatchKey key, Set<String> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost; re-read everything we care about
+                changed.addAll(handlers.keySet());
+            } else if (event.context() instanceof Path path) {
+                changed.add(path.getFileName().toString());
+            }
+        }
+        key.reset();
+    }
+
+    private void apply(String fileName, Consumer<FileConfiguration> handler) {
+        try {
+            FileConfiguration config = plugin.getConfigManager().reloadConfig(fileName);
+            if (config != null) {
+                handler.accept(config);
+            }
+        } catch (Exception e) {
+            // One broken edit must not stop the watcher
+            MessageUtils.sendConsole("&cError applying changes to " + fileName + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
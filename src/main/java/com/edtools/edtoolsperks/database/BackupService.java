@@ -0,0 +1,151 @@
+package com.edtools.edtoolsperks.database;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Online H2 backups: BACKUP TO writes a consistent zip of the database while the server keeps
+// running, so nothing has to stop or copy a file that is being written. Keeps the newest N archives.
+public class BackupService {
+
+    public record Report(String fileName, long bytes, long durationMs, int deleted) {
+    }
+
+    public record Stats(long backups, long failures, long lastBytes, long lastDurationMs,
+                        double avgDurationMs, long maxDurationMs, long lastBackupAt) {
+    }
+
+    private static final String PREFIX = "edtoolsperks-";
+    private static final String SUFFIX = ".zip";
+
+    private final ConnectionPool pool;
+    private final SqlDialect dialect;
+    private final File folder;
+    private final int keep;
+    private final long warnDurationMs;
+    private final Logger logger;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final LongAdder backups = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalDurationMs = new LongAdder();
+    private final AtomicLong maxDurationMs = new AtomicLong();
+    private volatile Report lastReport;
+    private volatile long lastBackupAt;
+
+    public BackupService(ConnectionPool pool, SqlDialect dialect, File folder, int keep, long warnDurationMs, Logger logger) {
+        this.pool = pool;
+        this.dialect = dialect;
+        this.folder = folder;
+        this.keep = Math.max(1, keep);
+        this.warnDurationMs = warnDurationMs;
+        this.logger = logger;
+    }
+
+    // BACKUP TO is H2 only; MySQL backups belong to the database server (mysqldump etc.)
+    public boolean isSupported() {
+        return dialect == SqlDialect.H2;
+    }
+
+    // Blocking; call from an async thread. Returns null if a backup is already running.
+    public Report backup() throws SQLException, IOException {
+        if (!isSupported()) {
+            throw new SQLException("Online backups are only supported for H2 databases");
+        }
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+
+        try {
+            if (!folder.isDirectory() && !folder.mkdirs()) {
+                throw new IOException("Could not create " + folder.getPath());
+            }
+
+            long start = System.currentTimeMillis();
+            String fileName = PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(start)) + SUFFIX;
+            File file = new File(folder, fileName);
+            File partial = new File(folder, fileName + ".part");
+
+            try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+                stmt.execute("BACKUP TO '" + partial.getAbsolutePath().replace("'", "''") + "'");
+            } catch (SQLException e) {
+                failures.increment();
+                partial.delete();
+                throw e;
+            }
+
+            // Only complete archives get the real name, so rotation never counts a broken one
+            if (!partial.renameTo(file)) {
+                failures.increment();
+                partial.delete();
+                throw new IOException("Could not rename " + partial.getName() + " to " + fileName);
+            }
+
+            long duration = System.currentTimeMillis() - start;
+            int deleted = rotate();
+            Report report = new Report(fileName, file.length(), duration, deleted);
+
+            backups.increment();
+            totalDurationMs.add(duration);
+            maxDurationMs.accumulateAndGet(duration, Math::max);
+            lastReport = report;
+            lastBackupAt = start;
+
+            logger.info("Database backup " + fileName + " written (" + (report.bytes() / 1024) + "KB, " + duration + "ms"
+                    + (deleted > 0 ? ", " + deleted + " old backup(s) removed" : "") + ")");
+            if (warnDurationMs > 0 && duration > warnDurationMs) {
+                logger.warning("Database backup took " + duration + "ms, longer than the " + warnDurationMs
+                        + "ms warning threshold. The database may be outgrowing the backup window.");
+            }
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Deletes all but the newest keep archives; the timestamped names sort oldest first
+    private int rotate() {
+        File[] files = folder.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null || files.length <= keep) {
+            return 0;
+        }
+
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        int deleted = 0;
+        for (int i = 0; i < files.length - keep; i++) {
+            if (files[i].delete()) {
+                deleted++;
+            } else {
+                logger.warning("Could not delete old backup " + files[i].getName());
+            }
+        }
+        return deleted;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    public Stats getStats() {
+        long count = backups.sum();
+        Report last = lastReport;
+        return new Stats(count, failures.sum(),
+                last != null ? last.bytes() : 0L,
+                last != null ? last.durationMs() : 0L,
+                count > 0 ? (double) totalDurationMs.sum() / count : 0.0,
+                maxDurationMs.get(), lastBackupAt);
+    }
+}
@@ -0,0 +1,304 @@
+package com.edtools.edtoolsperks.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Small JDBC connection pool: bounded size, validation on borrow and leak detection.
+// Borrowed connections are proxies whose close() hands the physical connection back.
+public class ConnectionPool {
+
+    // leakBorrowStacks records a stack trace on every borrow so a leak report shows where the
+    // connection was taken; that is a stack walk per borrow, so it is meant for debugging only
+    public record Settings(int minSize, int maxSize, long borrowTimeoutMs, int validationTimeoutSeconds,
+                           long leakThresholdMs, boolean leakBorrowStacks, int statementCacheSize) {
+    }
+
+    public record Stats(int maxSize, int active, int idle, long created, long borrowed,
+                        long validationFailures, long timeouts, long leaks, double avgBorrowWaitMs,
+                        long statementCacheHits, long statementCacheMisses) {
+    }
+
+    private final StorageProvider provider;
+    private final Settings settings;
+    private final Logger logger;
+
+    private final BlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Map<Connection, Lease> leased = new ConcurrentHashMap<>();
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private volatile boolean closed;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final AtomicLong totalBorrowWaitNanos = new AtomicLong();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    public ConnectionPool(StorageProvider provider, Settings settings, Logger logger) {
+        this.provider = provider;
+        this.settings = settings;
+        this.logger = logger;
+        this.permits = new Semaphore(Math.max(1, settings.maxSize()), true);
+    }
+
+    public void start() throws SQLException {
+        int min = Math.min(settings.minSize(), settings.maxSize());
+        for (int i = 0; i < min; i++) {
+            idle.offer(openPhysical());
+        }
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(settings.borrowTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out after " + settings.borrowTimeoutMs() + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            Connection physical = takeValidIdle();
+            if (physical == null) {
+                physical = openPhysical();
+            }
+
+            totalBorrowWaitNanos.addAndGet(System.nanoTime() - start);
+            borrowed.increment();
+
+            Connection proxy = wrap(physical);
+            // Only thread and time by default; the stack is taken by checkLeaks once a lease is flagged
+            leased.put(proxy, new Lease(physical, System.currentTimeMillis(), Thread.currentThread(),
+                    settings.leakBorrowStacks() ? new Exception("Connection borrowed here") : null));
+            return proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection takeValidIdle() {
+        Connection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            try {
+                if (candidate.isValid(settings.validationTimeoutSeconds())) {
+                    return candidate;
+                }
+            } catch (SQLException ignored) {
+                // Treated as invalid below
+            }
+            validationFailures.increment();
+            discard(candidate);
+        }
+        return null;
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection connection = provider.openConnection();
+        created.increment();
+        return connection;
+    }
+
+    private void release(Connection proxy) {
+        Lease lease = leased.remove(proxy);
+        if (lease == null) {
+            return;
+        }
+
+        Connection physical = lease.physical;
+        try {
+            if (closed || physical.isClosed()) {
+                discard(physical);
+                return;
+            }
+
+            // Never hand out a connection with a half-finished transaction
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            idle.offerFirst(physical);
+        } catch (SQLException e) {
+            discard(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Logs every connection held longer than the leak threshold; returns how many were found
+    public int checkLeaks() {
+        long threshold = settings.leakThresholdMs();
+        if (threshold <= 0) {
+            return 0;
+        }
+
+        long now = System.currentTimeMillis();
+        int found = 0;
+        for (Lease lease : leased.values()) {
+            if (!lease.reported && now - lease.borrowedAt > threshold) {
+                lease.reported = true;
+                found++;
+                leaks.increment();
+                logger.log(Level.WARNING, "Possible connection leak: held by " + lease.thread.getName() + " for "
+                        + (now - lease.borrowedAt) + "ms", lease.origin != null ? lease.origin : holderStack(lease.thread));
+            }
+        }
+        return found;
+    }
+
+    public Stats getStats() {
+        long count = borrowed.sum();
+        return new Stats(
+                settings.maxSize(),
+                leased.size(),
+                idle.size(),
+                created.sum(),
+                count,
+                validationFailures.sum(),
+                timeouts.sum(),
+                leaks.sum(),
+                count > 0 ? totalBorrowWaitNanos.get() / (double) count / 1_000_000.0 : 0.0,
+                statementCacheHits.sum(),
+                statementCacheMisses.sum());
+    }
+
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+        if (!leased.isEmpty()) {
+            logger.warning("Closing connection pool with " + leased.size() + " connection(s) still borrowed");
+            for (Lease lease : leased.values()) {
+                discard(lease.physical);
+            }
+            leased.clear();
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(physical));
+    }
+
+    // Prepared statements live as long as their physical connection
+    private StatementCache statementCache(Connection physical) {
+        return statementCaches.computeIfAbsent(physical, connection ->
+                new StatementCache(connection, settings.statementCacheSize(), statementCacheHits, statementCacheMisses));
+    }
+
+    private void discard(Connection physical) {
+        StatementCache cache = statementCaches.remove(physical);
+        if (cache != null) {
+            cache.close();
+        }
+        closeQuietly(physical);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    // Where the borrowing thread is now; for a connection that is still in use this is the code holding it
+    private static Exception holderStack(Thread thread) {
+        Exception stack = new Exception("Borrowing thread is now at (enable leak-detection-borrow-stacks for the borrow site)");
+        stack.setStackTrace(thread.getStackTrace());
+        return stack;
+    }
+
+    private static final class Lease {
+        private final Connection physical;
+        private final long borrowedAt;
+        private final Thread thread;
+        private final Exception origin;
+        private volatile boolean reported;
+
+        private Lease(Connection physical, long borrowedAt, Thread thread, Exception origin) {
+            this.physical = physical;
+            this.borrowedAt = borrowedAt;
+            this.thread = thread;
+            this.origin = origin;
+        }
+    }
+
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private volatile boolean returned;
+
+        private PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release((Connection) proxy);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + physical + "]";
+                }
+                default -> {
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                }
+            }
+
+            // Plain prepareStatement(sql) is served from the per-connection cache
+            if (method.getName().equals("prepareStatement") && args != null && args.length == 1
+                    && settings.statementCacheSize() > 0) {
+                return statementCache(physical).prepare((String) args[0]);
+            }
+
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package com.edtools.edtoolsperks.database;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Streams players, tool_perks and roll_history to and from a gzipped NDJSON file (one JSON object per line).
+// Tables are read in keyset pages and written back in JDBC batches, so memory use is one page whatever the size.
+public class DataTransfer {
+
+    // 2: players carry the packed pity_state instead of the single pity counter
+    public static final int FORMAT_VERSION = 2;
+
+    // rollHistorySkipped: rows of the file that were already in the database (import only)
+    public record Report(long players, long toolPerks, long rollHistory, long rollHistorySkipped, long bytes, long durationMs) {
+    }
+
+    private final ConnectionPool pool;
+    private final PlayerRepository players;
+    private final ToolPerkRepository toolPerks;
+    private final RollHistoryRepository rollHistory;
+    private final int pageSize;
+    private final Logger logger;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public DataTransfer(ConnectionPool pool, PlayerRepository players, ToolPerkRepository toolPerks,
+                        RollHistoryRepository rollHistory, int pageSize, Logger logger) {
+        this.pool = pool;
+        this.players = players;
+        this.toolPerks = toolPerks;
+        this.rollHistory = rollHistory;
+        this.pageSize = Math.max(1, pageSize);
+        this.logger = logger;
+    }
+
+    // Blocking; call from an async thread. Returns null if an export or import is already running.
+    public Report export(File file) throws IOException, SQLException {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            long playerCount = 0;
+            long toolPerkCount = 0;
+            long historyCount = 0;
+
+            File partial = new File(file.getParentFile(), file.getName() + ".part");
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(partial), 64 * 1024), StandardCharsets.UTF_8))) {
+                JsonWriter json = new JsonWriter(out);
+                json.setLenient(true);
+
+                json.beginObject()
+                        .name("type").value("header")
+                        .name("format").value(FORMAT_VERSION)
+                        .name("schema").value(SchemaMigrator.getLatestVersion())
+                        .name("exported_at").value(start)
+                        .endObject();
+                out.write('\n');
+
+                // Players, keyed by uuid
+                String afterUuid = "";
+                while (true) {
+                    List<PlayerRepository.Snapshot> page;
+                    try (Connection conn = pool.getConnection()) {
+                        page = players.page(conn, afterUuid, pageSize);
+                    }
+                    for (PlayerRepository.Snapshot row : page) {
+                        json.beginObject()
+                                .name("type").value("player")
+                                .name("uuid").value(row.uuid().toString())
+                                .name("name").value(row.username())
+                                .name("rolls").value(row.currentRolls())
+                                .name("total").value(row.totalRolls())
+                                .name("pity_state").value(row.pityState())
+                                .endObject();
+                        out.write('\n');
+                    }
+                    playerCount += page.size();
+                    if (page.size() < pageSize) {
+                        break;
+                    }
+                    afterUuid = page.get(page.size() - 1).uuid().toString();
+                }
+
+                // Tool perks, keyed by id
+                long afterId = 0;
+                while (true) {
+                    List<ToolPerkRepository.OwnedPerk> page;
+                    try (Connection conn = pool.getConnection()) {
+                        page = toolPerks.page(conn, afterId, pageSize);
+                    }
+                    for (ToolPerkRepository.OwnedPerk row : page) {
+                        json.beginObject()
+                                .name("type").value("tool_perk")
+                                .name("tool").value(row.perk().toolId())
+                                .name("owner").value(row.owner().toString())
+                                .name("perk").value(row.perk().perkId())
+                                .name("level").value(row.perk().level())
+                                .endObject();
+                        out.write('\n');
+                    }
+                    toolPerkCount += page.size();
+                    if (page.size() < pageSize) {
+                        break;
+                    }
+                    afterId = page.get(page.size() - 1).id();
+                }
+
+                // Roll history, keyed by id
+                afterId = 0;
+                while (true) {
+                    List<RollHistoryRepository.Row> page;
+                    try (Connection conn = pool.getConnection()) {
+                        page = rollHistory.page(conn, afterId, pageSize);
+                    }
+                    for (RollHistoryRepository.Row row : page) {
+                        RollHistoryJournal.Entry entry = row.entry();
+                        json.beginObject()
+                                .name("type").value("roll")
+                                .name("player").value(entry.playerUuid().toString())
+                                .name("perk").value(entry.perkName())
+                                .name("level").value(entry.level())
+                                .name("category").value(entry.category())
+                                .name("guaranteed").value(entry.guaranteed())
+                                .name("time").value(entry.rolledAt());
+                        if (entry.seed() != null) {
+                            json.name("seed").value(entry.seed());
+                        }
+                        if (entry.toolType() != null) {
+                            json.name("tool_type").value(entry.toolType());
+                        }
+                        json.endObject();
+                        out.write('\n');
+                    }
+                    historyCount += page.size();
+                    if (page.size() < pageSize) {
+                        break;
+                    }
+                    afterId = page.get(page.size() - 1).id();
+                }
+            }
+
+            // Only a complete file gets the real name
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Could not replace " + file.getName());
+            }
+            if (!partial.renameTo(file)) {
+                throw new IOException("Could not rename " + partial.getName() + " to " + file.getName());
+            }
+
+            Report report = new Report(playerCount, toolPerkCount, historyCount, 0L, file.length(), System.currentTimeMillis() - start);
+            logger.info("Exported " + playerCount + " players, " + toolPerkCount + " tool perks and " + historyCount
+                    + " roll history rows to " + file.getName() + " (" + report.bytes() + " bytes, " + report.durationMs() + "ms)");
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Blocking; call from an async thread. Players and tool perks in the file overwrite existing rows,
+    // roll history rows are appended unless the database already has them (see HistoryWriter), so an
+    // import that failed half way can simply be run again. Each batch is its own transaction.
+    // onToolImported is told about every tool id written so caches can drop it.
+    // Returns null if an export or import is already running.
+    public Report importFrom(File file, Consumer<String> onToolImported) throws IOException, SQLException {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            long playerCount = 0;
+            long toolPerkCount = 0;
+
+            List<PlayerRepository.Snapshot> playerBatch = new ArrayList<>(pageSize);
+            List<ToolPerkRepository.OwnedPerk> toolPerkBatch = new ArrayList<>(pageSize);
+            HistoryWriter history;
+            try (Connection conn = pool.getConnection()) {
+                history = new HistoryWriter(rollHistory.maxId(conn));
+            }
+
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new FileInputStream(file), 64 * 1024), StandardCharsets.UTF_8))) {
+                String line = in.readLine();
+                checkHeader(line);
+
+                int lineNumber = 1;
+                while ((line = in.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+
+                    JsonObject row;
+                    try {
+                        row = JsonParser.parseString(line).getAsJsonObject();
+                        switch (row.get("type").getAsString()) {
+                            case "player" -> playerBatch.add(new PlayerRepository.Snapshot(
+                                    UUID.fromString(row.get("uuid").getAsString()), row.get("name").getAsString(),
+                                    row.get("rolls").getAsInt(), row.get("total").getAsInt(), readPityState(row)));
+                            case "tool_perk" -> toolPerkBatch.add(new ToolPerkRepository.OwnedPerk(0L,
+                                    UUID.fromString(row.get("owner").getAsString()),
+                                    new ToolPerkRecord(row.get("tool").getAsString(), row.get("perk").getAsString(), row.get("level").getAsInt())));
+                            case "roll" -> history.batch.add(new RollHistoryJournal.Entry(
+                                    UUID.fromString(row.get("player").getAsString()), row.get("perk").getAsString(),
+                                    row.get("level").getAsInt(), row.get("category").getAsString(),
+                                    row.get("guaranteed").getAsBoolean(), row.get("time").getAsLong(),
+                                    row.has("seed") ? row.get("seed").getAsLong() : null,
+                                    row.has("tool_type") ? row.get("tool_type").getAsString() : null));
+                            default -> logger.warning("Skipping unknown row type on line " + lineNumber + " of " + file.getName());
+                        }
+                    } catch (RuntimeException e) {
+                        throw new IOException("Invalid row on line " + lineNumber + " of " + file.getName() + ": " + e.getMessage(), e);
+                    }
+
+                    if (playerBatch.size() >= pageSize) {
+                        playerCount += writePlayers(playerBatch);
+                    }
+                    if (toolPerkBatch.size() >= pageSize) {
+                        toolPerkCount += writeToolPerks(toolPerkBatch, onToolImported);
+                    }
+                    if (history.batch.size() >= pageSize) {
+                        history.flush(false);
+                    }
+                }
+            }
+
+            playerCount += writePlayers(playerBatch);
+            toolPerkCount += writeToolPerks(toolPerkBatch, onToolImported);
+            history.flush(true);
+
+            Report report = new Report(playerCount, toolPerkCount, history.written, history.skipped, file.length(),
+                    System.currentTimeMillis() - start);
+            logger.info("Imported " + playerCount + " players, " + toolPerkCount + " tool perks and " + history.written
+                    + " roll history rows from " + file.getName() + " (" + history.skipped + " already present, "
+                    + report.durationMs() + "ms)");
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    // Format 1 files have the old single counter, which becomes the first pity tier's (as in migration 6)
+    private static long readPityState(JsonObject row) {
+        if (row.has("pity_state")) {
+            return row.get("pity_state").getAsLong();
+        }
+        return row.has("pity") ? Math.min(Math.max(row.get("pity").getAsInt(), 0), 0xFFFF) : 0L;
+    }
+
+    private void checkHeader(String line) throws IOException {
+        if (line == null) {
+            throw new IOException("File is empty");
+        }
+        JsonObject header;
+        try {
+            header = JsonParser.parseString(line).getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new IOException("Not an EdToolsPerks export: " + e.getMessage(), e);
+        }
+        if (!header.has("type") || !"header".equals(header.get("type").getAsString())) {
+            throw new IOException("Not an EdToolsPerks export (missing header)");
+        }
+        int format = header.get("format").getAsInt();
+        if (format > FORMAT_VERSION) {
+            throw new IOException("Export format " + format + " is newer than this plugin supports (" + FORMAT_VERSION + ")");
+        }
+    }
+
+    private int writePlayers(List<PlayerRepository.Snapshot> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                players.upsertBatch(conn, batch);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        int written = batch.size();
+        batch.clear();
+        return written;
+    }
+
+    private int writeToolPerks(List<ToolPerkRepository.OwnedPerk> batch, Consumer<String> onToolImported) throws SQLException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                toolPerks.saveBatch(conn, batch);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        for (ToolPerkRepository.OwnedPerk row : batch) {
+            onToolImported.accept(row.perk().toolId());
+        }
+        int written = batch.size();
+        batch.clear();
+        return written;
+    }
+
+    // Rolls compared when looking for rows that are already there. Times are compared to the second,
+    // since MySQL TIMESTAMP columns round away the milliseconds; tool_type is not compared because
+    // it is derived from the perk for rows written before it was recorded.
+    private record HistoryKey(UUID player, String perk, int level, String category, boolean guaranteed,
+                              long second, Long seed) {
+        static HistoryKey of(RollHistoryJournal.Entry entry) {
+            return new HistoryKey(entry.playerUuid(), entry.perkName(), entry.level(), entry.category(),
+                    entry.guaranteed(), Math.floorDiv(entry.rolledAt() + 500, 1000), entry.seed());
+        }
+    }
+
+    // Appends the file's roll_history rows in batches. Each row is matched against the rows that were in
+    // the database before the import started (id <= existingUpTo), counting duplicates, and only
+    // unmatched rows are inserted, so re-running an import never doubles history. A batch never ends in
+    // the middle of a multi-roll (rows of one player with the same time), so its rows are always
+    // matched together.
+    private final class HistoryWriter {
+
+        private final List<RollHistoryJournal.Entry> batch = new ArrayList<>(pageSize);
+        private final long existingUpTo;
+        private long written;
+        private long skipped;
+
+        HistoryWriter(long existingUpTo) {
+            this.existingUpTo = existingUpTo;
+        }
+
+        void flush(boolean last) throws SQLException {
+            int end = batch.size();
+            if (!last) {
+                RollHistoryJournal.Entry tail = batch.get(end - 1);
+                while (end > 0 && sameRoll(batch.get(end - 1), tail)) {
+                    end--;
+                }
+                if (end == 0) {
+                    // One multi-roll fills the whole batch
+                    end = batch.size();
+                }
+            }
+            List<RollHistoryJournal.Entry> rows = batch.subList(0, end);
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            try (Connection conn = pool.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    List<RollHistoryJournal.Entry> missing = withoutExisting(conn, rows);
+                    if (!missing.isEmpty()) {
+                        rollHistory.insertBatch(conn, missing);
+                    }
+                    conn.commit();
+                    written += missing.size();
+                    skipped += rows.size() - missing.size();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            rows.clear();
+        }
+
+        private List<RollHistoryJournal.Entry> withoutExisting(Connection conn, List<RollHistoryJournal.Entry> rows) throws SQLException {
+            if (existingUpTo == 0) {
+                // roll_history was empty when the import started
+                return rows;
+            }
+
+            // One ranged query per player in the batch; a second either side covers MySQL's rounding
+            Map<UUID, long[]> ranges = new HashMap<>();
+            for (RollHistoryJournal.Entry entry : rows) {
+                long[] range = ranges.computeIfAbsent(entry.playerUuid(), key -> new long[]{Long.MAX_VALUE, Long.MIN_VALUE});
+                range[0] = Math.min(range[0], entry.rolledAt());
+                range[1] = Math.max(range[1], entry.rolledAt());
+            }
+            Map<HistoryKey, Integer> existing = new HashMap<>();
+            for (Map.Entry<UUID, long[]> range : ranges.entrySet()) {
+                for (RollHistoryRepository.Row row : rollHistory.findBetween(conn, range.getKey(),
+                        range.getValue()[0] - 1000, range.getValue()[1] + 1000, existingUpTo)) {
+                    existing.merge(HistoryKey.of(row.entry()), 1, Integer::sum);
+                }
+            }
+            if (existing.isEmpty()) {
+                return rows;
+            }
+
+            List<RollHistoryJournal.Entry> missing = new ArrayList<>(rows.size());
+            for (RollHistoryJournal.Entry entry : rows) {
+                HistoryKey key = HistoryKey.of(entry);
+                Integer count = existing.get(key);
+                if (count == null) {
+                    missing.add(entry);
+                } else if (count == 1) {
+                    existing.remove(key);
+                } else {
+                    existing.put(key, count - 1);
+                }
+            }
+            return missing;
+        }
+
+        private boolean sameRoll(RollHistoryJournal.Entry a, RollHistoryJournal.Entry b) {
+            return a.rolledAt() == b.rolledAt() && a.playerUuid().equals(b.playerUuid());
+        }
+    }
+}
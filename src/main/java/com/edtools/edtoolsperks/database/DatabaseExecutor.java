@@ -0,0 +1,196 @@
+package com.edtools.edtoolsperks.database;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+// Dedicated, bounded executor for blocking JDBC work so database I/O never lands
+// on the common ForkJoinPool shared with the rest of the server
+public class DatabaseExecutor implements Executor {
+
+    public enum RejectionPolicy {
+        CALLER_RUNS,
+        BLOCK,
+        ABORT;
+
+        public static RejectionPolicy fromConfig(String value) {
+            if (value == null) {
+                return BLOCK;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return BLOCK;
+            }
+        }
+    }
+
+    public record Stats(int poolSize, int activeThreads, int queueDepth, int queueCapacity,
+                        long submitted, long completed, long failed, long rejected, long inline,
+                        double avgWaitMs, double maxWaitMs, double avgRunMs, double maxRunMs) {
+    }
+
+    // Marks our own worker threads so nested submissions run inline instead of deadlocking the pool
+    private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> false);
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final RejectionPolicy policy;
+    private final long blockTimeoutMs;
+    // True on the thread a full queue must never stall (the server thread): there, any policy rejects
+    private final BooleanSupplier isServerThread;
+    private final Logger logger;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder inline = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    public DatabaseExecutor(int threads, int queueCapacity, RejectionPolicy policy, long blockTimeoutMs,
+                            BooleanSupplier isServerThread, Logger logger) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.policy = policy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.isServerThread = isServerThread;
+        this.logger = logger;
+
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.queueCapacity), new WorkerThreadFactory(), createRejectionHandler());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submitted.increment();
+
+        // A database task waiting on another database task would otherwise starve a fixed pool
+        if (WORKER.get()) {
+            inline.increment();
+            runTimed(command, System.nanoTime());
+            return;
+        }
+
+        long enqueuedAt = System.nanoTime();
+        executor.execute(() -> runTimed(command, enqueuedAt));
+    }
+
+    private void runTimed(Runnable command, long enqueuedAt) {
+        long startedAt = System.nanoTime();
+        record(totalWaitNanos, maxWaitNanos, startedAt - enqueuedAt);
+        try {
+            command.run();
+        } finally {
+            completed.increment();
+            record(totalRunNanos, maxRunNanos, System.nanoTime() - startedAt);
+        }
+    }
+
+    // Tasks arrive wrapped by CompletableFuture, which keeps their exceptions from reaching runTimed;
+    // DatabaseManager reports failed ones here
+    void recordFailure() {
+        failed.increment();
+    }
+
+    private void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    private RejectedExecutionHandler createRejectionHandler() {
+        return (task, pool) -> {
+            rejected.increment();
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("Database executor is shut down");
+            }
+            if (isServerThread.getAsBoolean()) {
+                // Running JDBC here or waiting for room would freeze the server
+                throw new RejectedExecutionException("Database queue is full (" + queueCapacity + " tasks), not stalling the server thread");
+            }
+
+            switch (policy) {
+                case CALLER_RUNS -> task.run();
+                case BLOCK -> {
+                    try {
+                        if (!pool.getQueue().offer(task, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                            throw new RejectedExecutionException("Database queue still full after " + blockTimeoutMs + "ms");
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for database queue", e);
+                    }
+                }
+                case ABORT -> throw new RejectedExecutionException("Database queue is full (" + queueCapacity + " tasks)");
+            }
+        };
+    }
+
+    public Stats getStats() {
+        long done = completed.sum();
+        return new Stats(
+                executor.getPoolSize(),
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                queueCapacity,
+                submitted.sum(),
+                completed.sum(),
+                failed.sum(),
+                rejected.sum(),
+                inline.sum(),
+                done > 0 ? totalWaitNanos.sum() / (double) done / 1_000_000.0 : 0.0,
+                maxWaitNanos.get() / 1_000_000.0,
+                done > 0 ? totalRunNanos.sum() / (double) done / 1_000_000.0 : 0.0,
+                maxRunNanos.get() / 1_000_000.0);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public RejectionPolicy getPolicy() {
+        return policy;
+    }
+
+    // Stops accepting work and waits for every queued task to finish
+    public boolean shutdown(long timeoutMs) {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int dropped = executor.shutdownNow().size();
+        logger.severe("Database executor did not drain in " + timeoutMs + "ms, dropped " + dropped + " queued tasks");
+        return false;
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                WORKER.set(true);
+                runnable.run();
+            }, "EdToolsPerks-DB-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
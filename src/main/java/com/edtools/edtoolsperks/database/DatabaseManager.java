@@ -1,170 +1,449 @@
 package com.edtools.edtoolsperks.database;
 
 import com.edtools.edtoolsperks.EdToolsPerks;
+import com.edtools.edtoolsperks.perks.Perk;
+import com.edtools.edtoolsperks.perks.RollBatch;
+import com.edtools.edtoolsperks.profile.PlayerProfile;
 import com.edtools.edtoolsperks.utils.MessageUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 public class DatabaseManager {
 
     private final EdToolsPerks plugin;
-    private Connection connection;
-    private final String url;
+    private final StorageProvider storage;
+    private final ConnectionPool pool;
+    private final DatabaseExecutor executor;
+    private final long shutdownTimeoutMs;
+    private final RollHistoryJournal historyJournal;
+    private final PlayerRepository players;
+    private final ToolPerkRepository toolPerks;
+    private final RollHistoryRepository rollHistory;
+    private final ToolPerkCache toolPerkCache;
+    private final HistoryCompactor historyCompactor;
+    private final DataTransfer dataTransfer;
+    private final BackupService backupService;
+    private final File exportFolder;
+    private BukkitTask leakDetectionTask;
+    private BukkitTask historyFlushTask;
+    private BukkitTask maintenanceTask;
+    private BukkitTask backupTask;
 
     public DatabaseManager(EdToolsPerks plugin) {
         this.plugin = plugin;
-        String dbFile = plugin.getConfigManager().getConfig().getString("database.file", "edtoolsperks.db");
-        this.url = "jdbc:h2:" + plugin.getDataFolder().getAbsolutePath() + "/" + dbFile + ";MODE=MySQL";
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        this.storage = StorageProvider.fromConfig(config, plugin.getDataFolder());
+        this.players = new PlayerRepository(storage.getDialect());
+        this.toolPerks = new ToolPerkRepository(storage.getDialect());
+        this.rollHistory = new RollHistoryRepository(storage.getDialect());
+
+        this.pool = new ConnectionPool(storage, new ConnectionPool.Settings(
+                config.getInt("database.pool.min-size", 2),
+                config.getInt("database.pool.max-size", 8),
+                config.getLong("database.pool.borrow-timeout-ms", 5000L),
+                config.getInt("database.pool.validation-timeout-seconds", 2),
+                config.getLong("database.pool.leak-detection-threshold-ms", 10000L),
+                config.getBoolean("database.pool.leak-detection-borrow-stacks", false),
+                config.getInt("database.pool.statement-cache-size", 32)),
+                plugin.getLogger());
+
+        this.executor = new DatabaseExecutor(
+                config.getInt("database.executor.threads", 4),
+                config.getInt("database.executor.queue-size", 1000),
+                DatabaseExecutor.RejectionPolicy.fromConfig(config.getString("database.executor.rejection-policy", "block")),
+                config.getLong("database.executor.block-timeout-ms", 5000L),
+                // Not while disabling: the shutdown flush may wait for the queue rather than lose data
+                () -> Bukkit.isPrimaryThread() && plugin.isEnabled(),
+                plugin.getLogger());
+        this.shutdownTimeoutMs = config.getLong("database.executor.shutdown-timeout-seconds", 10L) * 1000L;
+
+        this.historyCompactor = new HistoryCompactor(pool, rollHistory, plugin.getLogger());
+        this.dataTransfer = new DataTransfer(pool, players, toolPerks, rollHistory,
+                config.getInt("database.transfer.batch-size", 1000), plugin.getLogger());
+        this.exportFolder = new File(plugin.getDataFolder(), "exports");
+        this.backupService = new BackupService(pool, storage.getDialect(), new File(plugin.getDataFolder(), "backups"),
+                config.getInt("maintenance.backup.keep", 10),
+                config.getLong("maintenance.backup.warn-duration-seconds", 30L) * 1000L, plugin.getLogger());
+        this.toolPerkCache = new ToolPerkCache(config.getInt("cache.tool-perks.max-size", 5000));
+
+        this.historyJournal = new RollHistoryJournal(pool, rollHistory, executor,
+                config.getInt("database.history-journal.batch-size", 50), plugin.getLogger());
     }
 
     public void initialize() {
         try {
-            Class.forName("org.h2.Driver");
-            connect();
-            createTables();
-            MessageUtils.sendConsole("&aDatabase initialized successfully!");
+            storage.loadDriver();
+            pool.start();
+            migrateSchema();
+            startLeakDetection();
+            startHistoryFlush();
+            startMaintenance();
+            MessageUtils.sendConsole("&aDatabase initialized successfully! &7(" + storage.getName() + ")");
         } catch (Exception e) {
             MessageUtils.sendConsole("&cError initializing database: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    private void connect() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
+    private void startLeakDetection() {
+        long thresholdMs = plugin.getConfigManager().getConfig().getLong("database.pool.leak-detection-threshold-ms", 10000L);
+        if (thresholdMs <= 0) {
             return;
         }
-        connection = DriverManager.getConnection(url);
-    }
-
-    private void createTables() throws SQLException {
-        String createPlayersTable = """
-            CREATE TABLE IF NOT EXISTS players (
-                uuid VARCHAR(36) PRIMARY KEY,
-                username VARCHAR(16) NOT NULL,
-                total_rolls INT DEFAULT 0,
-                current_rolls INT DEFAULT 0,
-                pity_counter INT DEFAULT 0,
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )
-            """;
-
-        String createPerksTable = """
-            CREATE TABLE IF NOT EXISTS tool_perks (
-                id INT AUTO_INCREMENT PRIMARY KEY,
-                tool_uuid VARCHAR(36) NOT NULL,
-                owner_uuid VARCHAR(36) NOT NULL,
-                perk_name VARCHAR(50) NOT NULL,
-                perk_level INT DEFAULT 1,
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                UNIQUE KEY unique_tool_perk (tool_uuid, perk_name)
-            )
-            """;
-
-        String createRollHistoryTable = """
-            CREATE TABLE IF NOT EXISTS roll_history (
-                id INT AUTO_INCREMENT PRIMARY KEY,
-                player_uuid VARCHAR(36) NOT NULL,
-                perk_name VARCHAR(50) NOT NULL,
-                perk_level INT NOT NULL,
-                perk_category VARCHAR(20) NOT NULL,
-                was_guaranteed BOOLEAN DEFAULT FALSE,
-                roll_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                INDEX idx_player_uuid (player_uuid),
-                INDEX idx_roll_time (roll_time)
-            )
-            """;
-
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createPlayersTable);
-            stmt.execute(createPerksTable);
-            stmt.execute(createRollHistoryTable);
+
+        long periodTicks = Math.max(20L, thresholdMs / 50L);
+        leakDetectionTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                pool.checkLeaks();
+            }
+        }.runTaskTimerAsynchronously(plugin, periodTicks, periodTicks);
+    }
+
+    private void startHistoryFlush() {
+        long intervalMs = plugin.getConfigManager().getConfig().getLong("database.history-journal.flush-interval-ms", 2000L);
+        long periodTicks = Math.max(1L, intervalMs / 50L);
+        historyFlushTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                historyJournal.requestFlush();
+            }
+        }.runTaskTimerAsynchronously(plugin, periodTicks, periodTicks);
+    }
+
+    private void startMaintenance() {
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        if (config.getBoolean("maintenance.backup.enabled", true)) {
+            if (backupService.isSupported()) {
+                long periodTicks = Math.max(1L, config.getLong("maintenance.backup.interval-hours", 6L)) * 72000L;
+                long delayTicks = Math.max(1L, config.getLong("maintenance.backup.initial-delay-minutes", 30L)) * 1200L;
+                backupTask = new BukkitRunnable() {
+                    @Override
+                    public void run() {
+                        runBackup();
+                    }
+                }.runTaskTimerAsynchronously(plugin, delayTicks, periodTicks);
+            } else {
+                plugin.getLogger().info("Scheduled backups are disabled: " + storage.getName() + " must be backed up by the database server.");
+            }
+        }
+
+        if (!config.getBoolean("maintenance.compaction.enabled", true)) {
+            return;
+        }
+
+        long periodTicks = Math.max(1L, config.getLong("maintenance.compaction.interval-hours", 24L)) * 72000L;
+        long delayTicks = Math.max(1L, config.getLong("maintenance.compaction.initial-delay-minutes", 10L)) * 1200L;
+        maintenanceTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                runCompaction();
+            }
+        }.runTaskTimerAsynchronously(plugin, delayTicks, periodTicks);
+    }
+
+    // Runs on a Bukkit async thread, not the database executor: it is long and paced on purpose
+    public CompletableFuture<HistoryCompactor.Report> compactHistory() {
+        CompletableFuture<HistoryCompactor.Report> result = new CompletableFuture<>();
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(runCompaction());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }.runTaskAsynchronously(plugin);
+        return result;
+    }
+
+    private HistoryCompactor.Report runCompaction() {
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        try {
+            return historyCompactor.compact(
+                    config.getInt("maintenance.compaction.retain-days", 30),
+                    config.getInt("maintenance.compaction.chunk-size", 1000),
+                    config.getLong("maintenance.compaction.pause-between-chunks-ms", 50L));
+        } catch (SQLException e) {
+            plugin.getLogger().severe("ERROR compacting roll history: " + e.getMessage());
+            throw new CompletionException(e);
+        }
+    }
+
+    public CompletableFuture<BackupService.Report> backup() {
+        CompletableFuture<BackupService.Report> result = new CompletableFuture<>();
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(runBackup());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }.runTaskAsynchronously(plugin);
+        return result;
+    }
+
+    private BackupService.Report runBackup() {
+        try {
+            return backupService.backup();
+        } catch (SQLException | IOException e) {
+            plugin.getLogger().severe("ERROR backing up database: " + e.getMessage());
+            throw new CompletionException(e);
+        }
+    }
+
+    public BackupService getBackupService() {
+        return backupService;
+    }
+
+    public HistoryCompactor getHistoryCompactor() {
+        return historyCompactor;
+    }
+
+    // Export/import also run on a Bukkit async thread; they can take minutes on big tables
+    public CompletableFuture<DataTransfer.Report> exportData(String fileName) {
+        File file = new File(exportFolder, fileName);
+        return runTransfer(() -> {
+            exportFolder.mkdirs();
+            // Include the rows still waiting in the journal
+            historyJournal.flushNow();
+            return dataTransfer.export(file);
+        });
+    }
+
+    public CompletableFuture<DataTransfer.Report> importData(String fileName) {
+        File file = new File(exportFolder, fileName);
+        return runTransfer(() -> {
+            if (!file.isFile()) {
+                throw new IOException("File not found: " + file.getName());
+            }
+            return dataTransfer.importFrom(file, toolPerkCache::invalidate);
+        });
+    }
+
+    private interface TransferTask {
+        DataTransfer.Report run() throws IOException, SQLException;
+    }
+
+    private CompletableFuture<DataTransfer.Report> runTransfer(TransferTask task) {
+        CompletableFuture<DataTransfer.Report> result = new CompletableFuture<>();
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(task.run());
+                } catch (IOException | SQLException | RuntimeException e) {
+                    plugin.getLogger().severe("ERROR transferring data: " + e.getMessage());
+                    result.completeExceptionally(e);
+                }
+            }
+        }.runTaskAsynchronously(plugin);
+        return result;
+    }
+
+    public DataTransfer getDataTransfer() {
+        return dataTransfer;
+    }
+
+    // Names of the files in the exports folder, newest first
+    public List<String> listExports() {
+        File[] files = exportFolder.listFiles((dir, name) -> name.endsWith(".ndjson.gz"));
+        if (files == null) {
+            return List.of();
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        List<String> names = new ArrayList<>(files.length);
+        for (File file : files) {
+            names.add(file.getName());
+        }
+        return names;
+    }
+
+    private void migrateSchema() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(pool, storage.getDialect(), plugin.getLogger());
+        int applied = migrator.migrate();
+        if (applied > 0) {
+            MessageUtils.sendConsole("&aApplied " + applied + " database migration(s), schema is at version " + SchemaMigrator.getLatestVersion());
         }
     }
 
+    // All JDBC work goes through the dedicated executor, never the common pool
+    private CompletableFuture<Void> runAsync(Runnable task) {
+        try {
+            return countFailures(CompletableFuture.runAsync(task, executor));
+        } catch (RejectedExecutionException e) {
+            plugin.getLogger().warning("Database task rejected: " + e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        try {
+            return countFailures(CompletableFuture.supplyAsync(task, executor));
+        } catch (RejectedExecutionException e) {
+            plugin.getLogger().warning("Database task rejected: " + e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // The CompletableFuture wrapper catches what a task throws, so the executor only learns about
+    // failures from here (and from the tasks that log and swallow their SQLException)
+    private <T> CompletableFuture<T> countFailures(CompletableFuture<T> future) {
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                executor.recordFailure();
+            }
+        });
+        return future;
+    }
+
     // Player data methods
     public CompletableFuture<Void> createPlayer(UUID uuid, String username) {
-        return CompletableFuture.runAsync(() -> {
-            String sql = "INSERT IGNORE INTO players (uuid, username) VALUES (?, ?)";
-            try {
-                connect();
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, uuid.toString());
-                    stmt.setString(2, username);
-                    stmt.executeUpdate();
-                }
+        return runAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                players.insertIfAbsent(conn, uuid, username);
             } catch (SQLException e) {
+                executor.recordFailure();
                 e.printStackTrace();
             }
         });
     }
 
-    public CompletableFuture<Integer> getPlayerRolls(UUID uuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT current_rolls FROM players WHERE uuid = ?";
-            try {
-                connect();
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, uuid.toString());
-                    ResultSet rs = stmt.executeQuery();
-                    if (rs.next()) {
-                        return rs.getInt("current_rolls");
+    // Ensures the row exists and reads everything the in-memory profile needs in one go
+    public CompletableFuture<PlayerProfile> loadPlayerProfile(UUID uuid, String username) {
+        return supplyAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                players.insertIfAbsent(conn, uuid, username);
+                players.touch(conn, uuid, username);
+                PlayerRecord record = players.find(conn, uuid);
+                if (record != null) {
+                    return new PlayerProfile(uuid, username, record.currentRolls(), record.totalRolls(), record.pityState());
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().severe("ERROR loading profile for " + uuid + ": " + e.getMessage());
+                throw new CompletionException(e);
+            }
+            return new PlayerProfile(uuid, username, 0, 0, 0);
+        });
+    }
+
+    // Writes only the columns that changed; roll counters are applied as deltas
+    public CompletableFuture<Void> savePlayerChanges(UUID uuid, PlayerProfile.Changes changes) {
+        return runAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                players.applyChanges(conn, uuid, changes);
+            } catch (SQLException e) {
+                plugin.getLogger().severe("ERROR saving profile for " + uuid + ": " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    // Pays for a roll in one transaction: locks the row, deducts only if the balance covers it and
+    // counts the rolls. Pity is not touched here; it advances in memory as the rolls are drawn.
+    // Pending profile changes (may be null) are written first so the check sees the real balance.
+    public CompletableFuture<RollSettlement> settleRolls(UUID uuid, int rollCount, PlayerProfile.Changes pending) {
+        return supplyAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    if (pending != null && !pending.isEmpty()) {
+                        players.applyChanges(conn, uuid, pending);
+                    }
+
+                    PlayerRecord record = players.findForUpdate(conn, uuid);
+                    if (record == null) {
+                        conn.commit();
+                        return RollSettlement.insufficient(0, 0);
                     }
+
+                    int updated = players.settle(conn, uuid, rollCount);
+                    conn.commit();
+
+                    if (updated == 0) {
+                        return RollSettlement.insufficient(record.currentRolls(), record.totalRolls());
+                    }
+                    return new RollSettlement(true, record.currentRolls() - rollCount, record.totalRolls() + rollCount);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
                 }
             } catch (SQLException e) {
-                e.printStackTrace();
+                plugin.getLogger().severe("ERROR settling rolls for " + uuid + ": " + e.getMessage());
+                throw new CompletionException(e);
             }
-            return 0;
         });
     }
 
+    public CompletableFuture<Integer> getPlayerRolls(UUID uuid) {
+        return supplyAsync(() -> readPlayer(uuid, PlayerRecord::currentRolls));
+    }
+
+    private int readPlayer(UUID uuid, ToIntFunction<PlayerRecord> field) {
+        try (Connection conn = pool.getConnection()) {
+            PlayerRecord record = players.find(conn, uuid);
+            if (record != null) {
+                return field.applyAsInt(record);
+            }
+        } catch (SQLException e) {
+            executor.recordFailure();
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
     public CompletableFuture<Void> setPlayerRolls(UUID uuid, int rolls) {
-        return CompletableFuture.runAsync(() -> {
-            String sql = "UPDATE players SET current_rolls = ? WHERE uuid = ?";
-            try {
-                connect();
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setInt(1, rolls);
-                    stmt.setString(2, uuid.toString());
-                    stmt.executeUpdate();
-                }
+        return runAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                players.setRolls(conn, uuid, rolls);
             } catch (SQLException e) {
+                executor.recordFailure();
                 e.printStackTrace();
             }
         });
     }
 
+    private void ensurePlayer(Connection conn, UUID uuid) throws SQLException {
+        if (players.ensureExists(conn, uuid) > 0) {
+            plugin.getLogger().info("Created new player record for UUID: " + uuid);
+        }
+    }
+
     public CompletableFuture<Void> addPlayerRolls(UUID uuid, int amount) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                connect();
-                
+        return runAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
                 // First ensure player exists
-                String ensurePlayerSql = "INSERT IGNORE INTO players (uuid, username, current_rolls, total_rolls, pity_counter) VALUES (?, 'Unknown', 0, 0, 0)";
-                try (PreparedStatement ensureStmt = connection.prepareStatement(ensurePlayerSql)) {
-                    ensureStmt.setString(1, uuid.toString());
-                    int inserted = ensureStmt.executeUpdate();
-                    if (inserted > 0) {
-                        plugin.getLogger().info("Created new player record for UUID: " + uuid);
-                    }
-                }
-                
+                ensurePlayer(conn, uuid);
+
                 // Then update rolls
-                String updateSql = "UPDATE players SET current_rolls = current_rolls + ? WHERE uuid = ?";
-                try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
-                    updateStmt.setInt(1, amount);
-                    updateStmt.setString(2, uuid.toString());
-                    int rowsAffected = updateStmt.executeUpdate();
-                    plugin.getLogger().info("addPlayerRolls: Added " + amount + " rolls to player " + uuid + ", rows affected: " + rowsAffected);
-                    
-                    if (rowsAffected == 0) {
-                        plugin.getLogger().severe("ERROR: Failed to add rolls - no rows affected!");
-                    }
+                int rowsAffected = players.addRolls(conn, uuid, amount);
+                plugin.getLogger().info("addPlayerRolls: Added " + amount + " rolls to player " + uuid + ", rows affected: " + rowsAffected);
+
+                if (rowsAffected == 0) {
+                    plugin.getLogger().severe("ERROR: Failed to add rolls - no rows affected!");
                 }
             } catch (SQLException e) {
+                executor.recordFailure();
                 plugin.getLogger().severe("ERROR in addPlayerRolls: " + e.getMessage());
                 e.printStackTrace();
             }
@@ -172,98 +451,51 @@ public class DatabaseManager {
     }
 
     public CompletableFuture<Integer> getTotalRolls(UUID uuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT total_rolls FROM players WHERE uuid = ?";
-            try {
-                connect();
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, uuid.toString());
-                    ResultSet rs = stmt.executeQuery();
-                    if (rs.next()) {
-                        return rs.getInt("total_rolls");
-                    }
-                }
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-            return 0;
-        });
+        return supplyAsync(() -> readPlayer(uuid, PlayerRecord::totalRolls));
     }
 
     public CompletableFuture<Void> incrementTotalRolls(UUID uuid, int amount) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                connect();
-                
+        return runAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
                 // First ensure player exists
-                String ensurePlayerSql = "INSERT IGNORE INTO players (uuid, username, current_rolls, total_rolls, pity_counter) VALUES (?, 'Unknown', 0, 0, 0)";
-                try (PreparedStatement ensureStmt = connection.prepareStatement(ensurePlayerSql)) {
-                    ensureStmt.setString(1, uuid.toString());
-                    int inserted = ensureStmt.executeUpdate();
-                    if (inserted > 0) {
-                        plugin.getLogger().info("Created new player record for UUID: " + uuid);
-                    }
-                }
-                
+                ensurePlayer(conn, uuid);
+
                 // Then update total rolls
-                String updateSql = "UPDATE players SET total_rolls = total_rolls + ? WHERE uuid = ?";
-                try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
-                    updateStmt.setInt(1, amount);
-                    updateStmt.setString(2, uuid.toString());
-                    int rowsAffected = updateStmt.executeUpdate();
-                    plugin.getLogger().info("incrementTotalRolls: Added " + amount + " to total rolls for player " + uuid + ", rows affected: " + rowsAffected);
-                }
+                int rowsAffected = players.addTotalRolls(conn, uuid, amount);
+                plugin.getLogger().info("incrementTotalRolls: Added " + amount + " to total rolls for player " + uuid + ", rows affected: " + rowsAffected);
             } catch (SQLException e) {
+                executor.recordFailure();
                 plugin.getLogger().severe("ERROR in incrementTotalRolls: " + e.getMessage());
                 e.printStackTrace();
             }
         });
     }
 
-    public CompletableFuture<Integer> getPityCounter(UUID uuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT pity_counter FROM players WHERE uuid = ?";
-            try {
-                connect();
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, uuid.toString());
-                    ResultSet rs = stmt.executeQuery();
-                    if (rs.next()) {
-                        return rs.getInt("pity_counter");
-                    }
-                }
+    // Packed PityEngine counters; 0 when the player has no row
+    public CompletableFuture<Long> getPityState(UUID uuid) {
+        return supplyAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                PlayerRecord record = players.find(conn, uuid);
+                return record != null ? record.pityState() : 0L;
             } catch (SQLException e) {
+                executor.recordFailure();
                 e.printStackTrace();
             }
-            return 0;
+            return 0L;
         });
     }
 
-    public CompletableFuture<Void> setPityCounter(UUID uuid, int counter) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                connect();
-                
+    public CompletableFuture<Void> setPityState(UUID uuid, long state) {
+        return runAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
                 // First ensure player exists
-                String ensurePlayerSql = "INSERT IGNORE INTO players (uuid, username, current_rolls, total_rolls, pity_counter) VALUES (?, 'Unknown', 0, 0, 0)";
-                try (PreparedStatement ensureStmt = connection.prepareStatement(ensurePlayerSql)) {
-                    ensureStmt.setString(1, uuid.toString());
-                    int inserted = ensureStmt.executeUpdate();
-                    if (inserted > 0) {
-                        plugin.getLogger().info("Created new player record for UUID: " + uuid);
-                    }
-                }
-                
-                // Then update pity counter
-                String updateSql = "UPDATE players SET pity_counter = ? WHERE uuid = ?";
-                try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
-                    updateStmt.setInt(1, counter);
-                    updateStmt.setString(2, uuid.toString());
-                    int rowsAffected = updateStmt.executeUpdate();
-                    plugin.getLogger().info("setPityCounter: Set pity counter to " + counter + " for player " + uuid + ", rows affected: " + rowsAffected);
-                }
+                ensurePlayer(conn, uuid);
+
+                // Then update pity counters (runs for every roll batch, so nothing is logged here)
+                players.setPityState(conn, uuid, state);
             } catch (SQLException e) {
-                plugin.getLogger().severe("ERROR in setPityCounter: " + e.getMessage());
+                executor.recordFailure();
+                plugin.getLogger().severe("ERROR in setPityState: " + e.getMessage());
                 e.printStackTrace();
             }
         });
@@ -271,87 +503,191 @@ public class DatabaseManager {
 
     // Tool perk methods
     public CompletableFuture<Void> savePerkToTool(String toolUuid, UUID ownerUuid, String perkName, int level) {
-        return CompletableFuture.runAsync(() -> {
-            String sql = "INSERT INTO tool_perks (tool_uuid, owner_uuid, perk_name, perk_level) VALUES (?, ?, ?, ?) " +
-                        "ON DUPLICATE KEY UPDATE perk_level = ?";
-            try {
-                connect();
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, toolUuid);
-                    stmt.setString(2, ownerUuid.toString());
-                    stmt.setString(3, perkName);
-                    stmt.setInt(4, level);
-                    stmt.setInt(5, level);
-                    stmt.executeUpdate();
+        ToolPerkRecord record = new ToolPerkRecord(toolUuid, perkName, level);
+        // Cache first so lookups right after a roll already see the new perk
+        toolPerkCache.put(toolUuid, record);
+        return invalidateOnFailure(toolUuid, runAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    toolPerks.save(conn, record, ownerUuid);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
                 }
             } catch (SQLException e) {
+                executor.recordFailure();
+                toolPerkCache.invalidate(toolUuid);
                 e.printStackTrace();
             }
+        }));
+    }
+
+    // The cache is written before the database; when the write fails (or is never run) the
+    // cached value is dropped so the next lookup reads what the database actually has
+    private CompletableFuture<Void> invalidateOnFailure(String toolUuid, CompletableFuture<Void> write) {
+        write.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                toolPerkCache.invalidate(toolUuid);
+            }
         });
+        return write;
     }
 
-    public CompletableFuture<String> getToolPerk(String toolUuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT perk_name, perk_level FROM tool_perks WHERE tool_uuid = ?";
-            try {
-                connect();
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, toolUuid);
-                    ResultSet rs = stmt.executeQuery();
-                    if (rs.next()) {
-                        return rs.getString("perk_name") + ":" + rs.getInt("perk_level");
-                    }
-                }
+    // Completes with null when the tool has no perk; cached answers complete immediately
+    public CompletableFuture<ToolPerkRecord> getToolPerk(String toolUuid) {
+        Optional<ToolPerkRecord> cached = toolPerkCache.get(toolUuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.orElse(null));
+        }
+
+        return supplyAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                ToolPerkRecord record = toolPerks.find(conn, toolUuid);
+                toolPerkCache.putIfAbsent(toolUuid, record);
+                return record;
             } catch (SQLException e) {
+                executor.recordFailure();
                 e.printStackTrace();
             }
             return null;
         });
     }
 
+    // Warms the cache with every tool the player owns in a single query
+    public CompletableFuture<Integer> preloadToolPerks(UUID ownerUuid) {
+        return supplyAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                List<ToolPerkRecord> records = toolPerks.findByOwner(conn, ownerUuid);
+                toolPerkCache.pin(ownerUuid, records);
+                return records.size();
+            } catch (SQLException e) {
+                executor.recordFailure();
+                plugin.getLogger().severe("ERROR preloading tool perks for " + ownerUuid + ": " + e.getMessage());
+                return 0;
+            }
+        });
+    }
+
+    public void releaseToolPerks(UUID ownerUuid) {
+        toolPerkCache.unpin(ownerUuid);
+    }
+
     public CompletableFuture<Void> removeToolPerk(String toolUuid) {
-        return CompletableFuture.runAsync(() -> {
-            String sql = "DELETE FROM tool_perks WHERE tool_uuid = ?";
-            try {
-                connect();
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, toolUuid);
-                    stmt.executeUpdate();
-                }
+        toolPerkCache.put(toolUuid, null);
+        return invalidateOnFailure(toolUuid, runAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                toolPerks.delete(conn, toolUuid);
             } catch (SQLException e) {
+                executor.recordFailure();
+                toolPerkCache.invalidate(toolUuid);
                 e.printStackTrace();
             }
-        });
+        }));
     }
 
     // Roll history methods
-    public CompletableFuture<Void> saveRollHistory(UUID playerUuid, String perkName, int level, String category, boolean guaranteed) {
-        return CompletableFuture.runAsync(() -> {
-            String sql = "INSERT INTO roll_history (player_uuid, perk_name, perk_level, perk_category, was_guaranteed) VALUES (?, ?, ?, ?, ?)";
-            try {
-                connect();
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUuid.toString());
-                    stmt.setString(2, perkName);
-                    stmt.setInt(3, level);
-                    stmt.setString(4, category);
-                    stmt.setBoolean(5, guaranteed);
-                    stmt.executeUpdate();
-                }
+    // Rows are queued and written in batches by the journal, so this never blocks
+    public void saveRollHistory(UUID playerUuid, String perkName, int level, String category, boolean guaranteed) {
+        historyJournal.append(new RollHistoryJournal.Entry(playerUuid, perkName, level, category, guaranteed, System.currentTimeMillis(), null, null));
+    }
+
+    // Persists a whole multi-roll at once: the tool keeps only the last perk (one tool_perks write
+    // instead of one per roll) and every roll is queued for history with the same timestamp
+    public CompletableFuture<Void> saveRollBatch(String toolUuid, UUID playerUuid, RollBatch batch) {
+        long rolledAt = System.currentTimeMillis();
+        String toolType = batch.getToolType() != null ? batch.getToolType() : RollHistoryJournal.ALL_TOOLS;
+        for (int i = 0; i < batch.size(); i++) {
+            Perk perk = batch.getPerk(i);
+            historyJournal.append(new RollHistoryJournal.Entry(playerUuid, perk.getId(), batch.getLevel(i),
+                    perk.getCategory(), batch.isGuaranteed(i), rolledAt, batch.getSeed(i), toolType));
+        }
+
+        if (toolUuid == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int last = batch.getLastIndex();
+        return savePerkToTool(toolUuid, playerUuid, batch.getPerk(last).getId(), batch.getLevel(last));
+    }
+
+    // For /etp replay. Queued journal rows are flushed first so a roll made a moment ago is found.
+    public CompletableFuture<RollHistoryRepository.Row> getRollHistory(long id) {
+        return supplyAsync(() -> {
+            historyJournal.flushNow();
+            try (Connection conn = pool.getConnection()) {
+                return rollHistory.findById(conn, id);
             } catch (SQLException e) {
-                e.printStackTrace();
+                plugin.getLogger().severe("ERROR reading roll " + id + ": " + e.getMessage());
+                throw new CompletionException(e);
             }
         });
     }
 
-    public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                MessageUtils.sendConsole("&aDatabase connection closed.");
+    // Newest first
+    public CompletableFuture<List<RollHistoryRepository.Row>> getRecentRolls(UUID playerUuid, int limit) {
+        return supplyAsync(() -> {
+            historyJournal.flushNow();
+            try (Connection conn = pool.getConnection()) {
+                return rollHistory.findRecent(conn, playerUuid, limit);
+            } catch (SQLException e) {
+                plugin.getLogger().severe("ERROR reading roll history for " + playerUuid + ": " + e.getMessage());
+                throw new CompletionException(e);
             }
-        } catch (SQLException e) {
-            MessageUtils.sendConsole("&cError closing database connection: " + e.getMessage());
+        });
+    }
+
+    public StorageProvider getStorage() {
+        return storage;
+    }
+
+    public DatabaseExecutor getExecutor() {
+        return executor;
+    }
+
+    public DatabaseExecutor.Stats getExecutorStats() {
+        return executor.getStats();
+    }
+
+    public ConnectionPool.Stats getPoolStats() {
+        return pool.getStats();
+    }
+
+    public ToolPerkCache.Stats getToolPerkCacheStats() {
+        return toolPerkCache.getStats();
+    }
+
+    public RollHistoryJournal.Stats getHistoryJournalStats() {
+        return historyJournal.getStats();
+    }
+
+    public void close() {
+        if (leakDetectionTask != null) {
+            leakDetectionTask.cancel();
+        }
+        if (historyFlushTask != null) {
+            historyFlushTask.cancel();
+        }
+        if (maintenanceTask != null) {
+            maintenanceTask.cancel();
+        }
+        if (backupTask != null) {
+            backupTask.cancel();
         }
+
+        // Let queued writes finish before the connections go away
+        if (executor.shutdown(shutdownTimeoutMs)) {
+            MessageUtils.sendConsole("&aDatabase executor drained.");
+        }
+
+        // Whatever is still in the history journal is written on this thread
+        int pendingHistory = historyJournal.getQueueDepth();
+        historyJournal.flushNow();
+        if (pendingHistory > 0) {
+            MessageUtils.sendConsole("&aFlushed " + pendingHistory + " pending roll history rows.");
+        }
+
+        pool.close();
+        MessageUtils.sendConsole("&aDatabase connection pool closed.");
     }
-}
\ No newline at end of file
+}
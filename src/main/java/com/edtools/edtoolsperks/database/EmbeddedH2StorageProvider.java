@@ -0,0 +1,45 @@
+package com.edtools.edtoolsperks.database;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+// Single-server H2 file inside the plugin folder (the default)
+public class EmbeddedH2StorageProvider implements StorageProvider {
+
+    private final File dataFolder;
+    private final String fileName;
+    private final String url;
+
+    public EmbeddedH2StorageProvider(File dataFolder, String fileName) {
+        this.dataFolder = dataFolder;
+        this.fileName = fileName;
+        this.url = "jdbc:h2:" + dataFolder.getAbsolutePath() + "/" + fileName;
+    }
+
+    @Override
+    public String getName() {
+        return "H2 (embedded)";
+    }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.H2;
+    }
+
+    @Override
+    public void loadDriver() throws ClassNotFoundException {
+        Class.forName("org.h2.Driver");
+    }
+
+    @Override
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(url);
+    }
+
+    @Override
+    public File getDatabaseFile() {
+        return new File(dataFolder, fileName + ".mv.db");
+    }
+}
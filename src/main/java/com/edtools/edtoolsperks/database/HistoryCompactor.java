@@ -0,0 +1,113 @@
+package com.edtools.edtoolsperks.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+// Rolls roll_history rows older than the retention window up into roll_history_daily and
+// deletes them. Works in small id-ordered chunks, one short transaction each, so live
+// inserts from the history journal are never blocked for long.
+public class HistoryCompactor {
+
+    // tableBytes* is what roll_history takes inside the database. Freed space is reused for new rows;
+    // the database file itself does not shrink (H2 only gives space back on SHUTDOWN COMPACT).
+    public record Report(long rowsCompacted, long dailyRowsTouched, int chunks, long durationMs,
+                         long tableBytesBefore, long tableBytesAfter) {
+        public long tableBytesFreed() {
+            return tableBytesBefore - tableBytesAfter;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final RollHistoryRepository repository;
+    private final Logger logger;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile Report lastReport;
+
+    public HistoryCompactor(ConnectionPool pool, RollHistoryRepository repository, Logger logger) {
+        this.pool = pool;
+        this.repository = repository;
+        this.logger = logger;
+    }
+
+    // Blocking; call from an async thread. Returns null if a compaction is already running.
+    public Report compact(int retainDays, int chunkSize, long pauseMs) throws SQLException {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            long bytesBefore = tableSize();
+            Timestamp cutoff = new Timestamp(start - TimeUnit.DAYS.toMillis(Math.max(1, retainDays)));
+
+            long afterId = 0;
+            long rowsCompacted = 0;
+            long dailyRowsTouched = 0;
+            int chunks = 0;
+
+            while (true) {
+                RollHistoryRepository.Chunk chunk;
+                try (Connection conn = pool.getConnection()) {
+                    chunk = repository.nextChunk(conn, afterId, cutoff, Math.max(1, chunkSize));
+                    if (chunk == null) {
+                        break;
+                    }
+
+                    conn.setAutoCommit(false);
+                    try {
+                        dailyRowsTouched += repository.rollUp(conn, afterId, chunk.lastId(), cutoff);
+                        rowsCompacted += repository.deleteRange(conn, afterId, chunk.lastId(), cutoff);
+                        conn.commit();
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    }
+                }
+
+                afterId = chunk.lastId();
+                chunks++;
+
+                // Leave room for the journal and player queries between chunks
+                if (pauseMs > 0) {
+                    try {
+                        Thread.sleep(pauseMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+
+            Report report = new Report(rowsCompacted, dailyRowsTouched, chunks,
+                    System.currentTimeMillis() - start, bytesBefore, tableSize());
+            lastReport = report;
+            if (rowsCompacted > 0) {
+                logger.info("Compacted " + rowsCompacted + " roll history rows into " + dailyRowsTouched
+                        + " daily rows (" + chunks + " chunks, " + report.durationMs() + "ms, "
+                        + report.tableBytesFreed() + " bytes freed for reuse)");
+            }
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    private long tableSize() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return repository.tableSize(conn);
+        }
+    }
+}
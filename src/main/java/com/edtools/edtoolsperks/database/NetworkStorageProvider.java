@@ -0,0 +1,58 @@
+package com.edtools.edtoolsperks.database;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+// Shared database reached over the network, so several servers can use the same data.
+// MySQL/MariaDB URLs use the MySQL dialect; an H2 TCP server (jdbc:h2:tcp://...) works too.
+// The MySQL driver is not shaded: Paper ships com.mysql.cj.jdbc.Driver, which also talks to MariaDB.
+public class NetworkStorageProvider implements StorageProvider {
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final SqlDialect dialect;
+
+    public NetworkStorageProvider(String url, String username, String password) {
+        this.dialect = url.startsWith("jdbc:h2:") ? SqlDialect.H2 : SqlDialect.MYSQL;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public String getName() {
+        return (dialect == SqlDialect.H2 ? "H2 (server)" : "MySQL") + " " + url.replaceAll("[?;].*$", "");
+    }
+
+    @Override
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
+    @Override
+    public void loadDriver() throws ClassNotFoundException {
+        if (dialect == SqlDialect.H2) {
+            Class.forName("org.h2.Driver");
+            return;
+        }
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            // Older servers only ship the legacy driver
+            Class.forName("com.mysql.jdbc.Driver");
+        }
+    }
+
+    @Override
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    @Override
+    public File getDatabaseFile() {
+        return null;
+    }
+}
@@ -0,0 +1,7 @@
+package com.edtools.edtoolsperks.database;
+
+import java.util.UUID;
+
+// Roll counters of one row in players; pityState is the packed PityEngine counters
+public record PlayerRecord(UUID uuid, int currentRolls, int totalRolls, long pityState) {
+}
@@ -0,0 +1,198 @@
+package com.edtools.edtoolsperks.database;
+
+import com.edtools.edtoolsperks.profile.PlayerProfile;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// SQL for the players table. Callers own the connection (and the transaction, if any);
+// statements are reused through the pool's statement cache.
+public class PlayerRepository {
+
+    // Full row, used by export/import
+    public record Snapshot(UUID uuid, String username, int currentRolls, int totalRolls, long pityState) {
+    }
+
+    private static final String TOUCH_SQL = "UPDATE players SET username = ?, last_seen = CURRENT_TIMESTAMP WHERE uuid = ?";
+    private static final String SELECT_SQL = "SELECT current_rolls, total_rolls, pity_state FROM players WHERE uuid = ?";
+    private static final String SELECT_FOR_UPDATE_SQL = SELECT_SQL + " FOR UPDATE";
+    private static final String SET_ROLLS_SQL = "UPDATE players SET current_rolls = ? WHERE uuid = ?";
+    private static final String ADD_ROLLS_SQL = "UPDATE players SET current_rolls = current_rolls + ? WHERE uuid = ?";
+    private static final String ADD_TOTAL_ROLLS_SQL = "UPDATE players SET total_rolls = total_rolls + ? WHERE uuid = ?";
+    private static final String SET_PITY_SQL = "UPDATE players SET pity_state = ? WHERE uuid = ?";
+    private static final String SETTLE_SQL = "UPDATE players SET current_rolls = current_rolls - ?, total_rolls = total_rolls + ? " +
+            "WHERE uuid = ? AND current_rolls >= ?";
+
+    private static final String PAGE_SQL = "SELECT uuid, username, current_rolls, total_rolls, pity_state FROM players WHERE uuid > ? ORDER BY uuid LIMIT ?";
+
+    // One UPDATE per combination of dirty columns, so every variant stays cacheable
+    private static final int ROLLS = 1;
+    private static final int TOTAL_ROLLS = 2;
+    private static final int PITY = 4;
+    private static final String[] CHANGES_SQL = buildChangesSql();
+
+    private static String[] buildChangesSql() {
+        String[] sql = new String[8];
+        for (int mask = 0; mask < sql.length; mask++) {
+            StringBuilder builder = new StringBuilder("UPDATE players SET last_seen = CURRENT_TIMESTAMP");
+            if ((mask & ROLLS) != 0) {
+                builder.append(", current_rolls = current_rolls + ?");
+            }
+            if ((mask & TOTAL_ROLLS) != 0) {
+                builder.append(", total_rolls = total_rolls + ?");
+            }
+            if ((mask & PITY) != 0) {
+                builder.append(", pity_state = ?");
+            }
+            sql[mask] = builder.append(" WHERE uuid = ?").toString();
+        }
+        return sql;
+    }
+
+    private final String insertSql;
+    private final String upsertSql;
+
+    public PlayerRepository(SqlDialect dialect) {
+        this.insertSql = dialect.playerInsertIfAbsentSql();
+        this.upsertSql = dialect.playerUpsertSql();
+    }
+
+    public int insertIfAbsent(Connection conn, UUID uuid, String username) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(insertSql)) {
+            stmt.setString(1, uuid.toString());
+            stmt.setString(2, username);
+            return stmt.executeUpdate();
+        }
+    }
+
+    // For writes that may arrive before the player ever joined (e.g. admin commands)
+    public int ensureExists(Connection conn, UUID uuid) throws SQLException {
+        return insertIfAbsent(conn, uuid, "Unknown");
+    }
+
+    public void touch(Connection conn, UUID uuid, String username) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(TOUCH_SQL)) {
+            stmt.setString(1, username);
+            stmt.setString(2, uuid.toString());
+            stmt.executeUpdate();
+        }
+    }
+
+    public PlayerRecord find(Connection conn, UUID uuid) throws SQLException {
+        return select(conn, SELECT_SQL, uuid);
+    }
+
+    // Locks the row until the surrounding transaction ends
+    public PlayerRecord findForUpdate(Connection conn, UUID uuid) throws SQLException {
+        return select(conn, SELECT_FOR_UPDATE_SQL, uuid);
+    }
+
+    private PlayerRecord select(Connection conn, String sql, UUID uuid) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, uuid.toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new PlayerRecord(uuid, rs.getInt("current_rolls"), rs.getInt("total_rolls"), rs.getLong("pity_state"));
+                }
+            }
+        }
+        return null;
+    }
+
+    public int setRolls(Connection conn, UUID uuid, int rolls) throws SQLException {
+        return updateInt(conn, SET_ROLLS_SQL, uuid, rolls);
+    }
+
+    public int addRolls(Connection conn, UUID uuid, int amount) throws SQLException {
+        return updateInt(conn, ADD_ROLLS_SQL, uuid, amount);
+    }
+
+    public int addTotalRolls(Connection conn, UUID uuid, int amount) throws SQLException {
+        return updateInt(conn, ADD_TOTAL_ROLLS_SQL, uuid, amount);
+    }
+
+    public int setPityState(Connection conn, UUID uuid, long state) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SET_PITY_SQL)) {
+            stmt.setLong(1, state);
+            stmt.setString(2, uuid.toString());
+            return stmt.executeUpdate();
+        }
+    }
+
+    private int updateInt(Connection conn, String sql, UUID uuid, int value) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, value);
+            stmt.setString(2, uuid.toString());
+            return stmt.executeUpdate();
+        }
+    }
+
+    // Returns 0 when the balance does not cover rollCount
+    public int settle(Connection conn, UUID uuid, int rollCount) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SETTLE_SQL)) {
+            stmt.setInt(1, rollCount);
+            stmt.setInt(2, rollCount);
+            stmt.setString(3, uuid.toString());
+            stmt.setInt(4, rollCount);
+            return stmt.executeUpdate();
+        }
+    }
+
+    // Writes only the dirty columns; roll counters are applied as deltas
+    public void applyChanges(Connection conn, UUID uuid, PlayerProfile.Changes changes) throws SQLException {
+        int mask = (changes.rollsDelta() != 0 ? ROLLS : 0)
+                | (changes.totalRollsDelta() != 0 ? TOTAL_ROLLS : 0)
+                | (changes.pityDirty() ? PITY : 0);
+
+        try (PreparedStatement stmt = conn.prepareStatement(CHANGES_SQL[mask])) {
+            int index = 1;
+            if ((mask & ROLLS) != 0) {
+                stmt.setInt(index++, changes.rollsDelta());
+            }
+            if ((mask & TOTAL_ROLLS) != 0) {
+                stmt.setInt(index++, changes.totalRollsDelta());
+            }
+            if ((mask & PITY) != 0) {
+                stmt.setLong(index++, changes.pityState());
+            }
+            stmt.setString(index, uuid.toString());
+            stmt.executeUpdate();
+        }
+    }
+
+    // Keyset pagination on the primary key; pass "" for the first page
+    public List<Snapshot> page(Connection conn, String afterUuid, int limit) throws SQLException {
+        List<Snapshot> rows = new ArrayList<>(limit);
+        try (PreparedStatement stmt = conn.prepareStatement(PAGE_SQL)) {
+            stmt.setString(1, afterUuid);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Snapshot(UUID.fromString(rs.getString("uuid")), rs.getString("username"),
+                            rs.getInt("current_rolls"), rs.getInt("total_rolls"), rs.getLong("pity_state")));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Inserts or overwrites the rows as one JDBC batch
+    public void upsertBatch(Connection conn, List<Snapshot> rows) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(upsertSql)) {
+            for (Snapshot row : rows) {
+                stmt.setString(1, row.uuid().toString());
+                stmt.setString(2, row.username());
+                stmt.setInt(3, row.currentRolls());
+                stmt.setInt(4, row.totalRolls());
+                stmt.setLong(5, row.pityState());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+}
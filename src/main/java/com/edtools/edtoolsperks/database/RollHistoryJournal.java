@@ -0,0 +1,256 @@
+package com.edtools.edtoolsperks.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLNonTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Write-behind queue for roll_history: rows are collected in memory and written
+// with one JDBC batch per transaction, every batch-size rows or every flush interval
+public class RollHistoryJournal {
+
+    // seed is the RollRng seed the roll was drawn from; null when unknown (older rows, admin grants)
+    // toolType is the drop table the roll was drawn from (ALL_TOOLS for every perk); null when unknown
+    public record Entry(UUID playerUuid, String perkName, int level, String category, boolean guaranteed, long rolledAt,
+                        Long seed, String toolType) {
+    }
+
+    // tool_type of rolls drawn from every perk because the held tool's type could not be determined
+    public static final String ALL_TOOLS = "all";
+
+    public record Stats(int queueDepth, long rowsWritten, long flushes, long failures, long dropped,
+                        double lastFlushMs, double avgFlushMs, double maxFlushMs) {
+    }
+
+    // A batch that failed this many times is retried one row per transaction to find the bad rows
+    private static final int ISOLATE_AFTER = 3;
+    // A row that keeps failing on its own (while other rows do get written) is dropped after this many attempts
+    private static final int MAX_ATTEMPTS = 5;
+    // Single-row failures in a row, with nothing written, before an isolation pass assumes the database is down
+    private static final int OUTAGE_PROBES = 3;
+
+    // A queued row and how many failed writes it has been charged with
+    private record Pending(Entry entry, int attempts) {
+    }
+
+    private final ConnectionPool pool;
+    private final RollHistoryRepository repository;
+    private final Executor executor;
+    private final Logger logger;
+    private final int batchSize;
+
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder totalFlushNanos = new LongAdder();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    public RollHistoryJournal(ConnectionPool pool, RollHistoryRepository repository, Executor executor, int batchSize, Logger logger) {
+        this.pool = pool;
+        this.repository = repository;
+        this.executor = executor;
+        this.batchSize = Math.max(1, batchSize);
+        this.logger = logger;
+    }
+
+    public void append(Entry entry) {
+        queue.offer(new Pending(entry, 0));
+        if (pending.incrementAndGet() >= batchSize) {
+            requestFlush();
+        }
+    }
+
+    // Called by the periodic timer; schedules a flush if anything is waiting
+    public void requestFlush() {
+        if (pending.get() == 0 || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    drain();
+                } finally {
+                    flushing.set(false);
+                }
+                // Rows that arrived while we were finishing up
+                if (pending.get() >= batchSize) {
+                    requestFlush();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            flushing.set(false);
+            logger.warning("Roll history flush rejected, will retry on next interval: " + e.getMessage());
+        }
+    }
+
+    // Writes everything queued on the calling thread; used on shutdown
+    public void flushNow() {
+        drain();
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (true) {
+            batch.clear();
+            Pending next;
+            while (batch.size() < batchSize && (next = queue.poll()) != null) {
+                batch.add(next);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            pending.addAndGet(-batch.size());
+
+            long start = System.nanoTime();
+            try {
+                write(batch.stream().map(Pending::entry).toList());
+            } catch (SQLException e) {
+                failures.increment();
+                int attempts = batch.stream().mapToInt(Pending::attempts).max().orElse(0) + 1;
+                boolean dataError = isDataError(e);
+                if (dataError || attempts >= ISOLATE_AFTER) {
+                    if (dataError) {
+                        logger.warning("Failed to flush " + batch.size() + " roll history rows (" + e.getMessage() + "), retrying them one by one");
+                    }
+                    if (!writeIsolated(batch)) {
+                        // Retried on the next interval, not straight away in this drain
+                        return;
+                    }
+                    continue;
+                }
+
+                logger.severe("Failed to flush " + batch.size() + " roll history rows: " + e.getMessage());
+                // Keep the rows for the next attempt instead of losing them
+                for (Pending failed : batch) {
+                    requeue(failed.entry(), attempts);
+                }
+                return;
+            }
+
+            recordFlush(batch.size(), System.nanoTime() - start);
+        }
+    }
+
+    // One transaction per row, so a bad row cannot hold the rest back. Rows rejected as bad data are
+    // dropped at once; rows failing otherwise are charged an attempt only when other rows did get
+    // written, so a database outage never drops anything. Returns false when rows were put back
+    // for another attempt.
+    private boolean writeIsolated(List<Pending> batch) {
+        List<Pending> failed = new ArrayList<>();
+        boolean written = false;
+        for (int i = 0; i < batch.size(); i++) {
+            Pending row = batch.get(i);
+            long start = System.nanoTime();
+            try {
+                write(List.of(row.entry()));
+                written = true;
+                recordFlush(1, System.nanoTime() - start);
+            } catch (SQLException e) {
+                if (isDataError(e)) {
+                    drop(row.entry(), e.getMessage());
+                    continue;
+                }
+                failed.add(row);
+                if (!written && failed.size() >= OUTAGE_PROBES) {
+                    // Nothing goes through at all: keep everything, uncharged, for the next interval
+                    for (Pending rest : batch.subList(i + 1, batch.size())) {
+                        requeue(rest.entry(), rest.attempts());
+                    }
+                    for (Pending rest : failed) {
+                        requeue(rest.entry(), rest.attempts());
+                    }
+                    logger.severe("Roll history rows cannot be written, will retry on next interval: " + e.getMessage());
+                    return false;
+                }
+            }
+        }
+
+        for (Pending row : failed) {
+            int attempts = written ? row.attempts() + 1 : row.attempts();
+            if (attempts >= MAX_ATTEMPTS) {
+                drop(row.entry(), "failed " + attempts + " times on its own");
+            } else {
+                requeue(row.entry(), attempts);
+            }
+        }
+        return failed.isEmpty();
+    }
+
+    // Constraint violations, bad values and the like: retrying the same row can never succeed.
+    // executeBatch wraps the driver's exception in a BatchUpdateException, so the chain is searched.
+    private static boolean isDataError(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() != null ? cause.getCause()
+                : cause instanceof SQLException sql ? sql.getNextException() : null) {
+            if (cause instanceof SQLNonTransientException && !(cause instanceof SQLNonTransientConnectionException)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void requeue(Entry entry, int attempts) {
+        queue.offer(new Pending(entry, attempts));
+        pending.incrementAndGet();
+    }
+
+    private void drop(Entry entry, String reason) {
+        dropped.increment();
+        logger.severe("Dropping roll history row " + entry + ": " + reason);
+    }
+
+    private void recordFlush(int rows, long elapsed) {
+        rowsWritten.add(rows);
+        flushes.increment();
+        totalFlushNanos.add(elapsed);
+        lastFlushNanos.set(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    private void write(List<Entry> batch) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                repository.insertBatch(conn, batch);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return pending.get();
+    }
+
+    public Stats getStats() {
+        long count = flushes.sum();
+        return new Stats(
+                pending.get(),
+                rowsWritten.sum(),
+                count,
+                failures.sum(),
+                dropped.sum(),
+                lastFlushNanos.get() / 1_000_000.0,
+                count > 0 ? totalFlushNanos.sum() / (double) count / 1_000_000.0 : 0.0,
+                maxFlushNanos.get() / 1_000_000.0);
+    }
+}
@@ -0,0 +1,208 @@
+package com.edtools.edtoolsperks.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// SQL for the roll_history table and its roll_history_daily rollup
+public class RollHistoryRepository {
+
+    // Last id and row count of the next chunk of rows older than the cutoff
+    public record Chunk(long lastId, int rows) {
+    }
+
+    // A roll_history row with its id, used by export
+    public record Row(long id, RollHistoryJournal.Entry entry) {
+    }
+
+    private static final String INSERT_SQL = "INSERT INTO roll_history (player_uuid, perk_name, perk_level, perk_category, was_guaranteed, roll_time, roll_seed, tool_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String NEXT_CHUNK_SQL = "SELECT MAX(id), COUNT(*) FROM (SELECT id FROM roll_history WHERE id > ? AND roll_time < ? ORDER BY id LIMIT ?) chunk";
+    private static final String AGGREGATE_SQL = "SELECT player_uuid, CAST(roll_time AS DATE) AS roll_date, perk_category, COUNT(*) AS roll_count, " +
+            "SUM(CASE WHEN was_guaranteed THEN 1 ELSE 0 END) AS guaranteed_count FROM roll_history " +
+            "WHERE id > ? AND id <= ? AND roll_time < ? GROUP BY player_uuid, CAST(roll_time AS DATE), perk_category";
+    private static final String COLUMNS = "id, player_uuid, perk_name, perk_level, perk_category, was_guaranteed, roll_time, roll_seed, tool_type";
+    private static final String PAGE_SQL = "SELECT " + COLUMNS + " FROM roll_history WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String FIND_BY_ID_SQL = "SELECT " + COLUMNS + " FROM roll_history WHERE id = ?";
+    private static final String FIND_RECENT_SQL = "SELECT " + COLUMNS + " FROM roll_history WHERE player_uuid = ? ORDER BY roll_time DESC, id DESC LIMIT ?";
+    private static final String MAX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM roll_history";
+    private static final String FIND_BETWEEN_SQL = "SELECT " + COLUMNS + " FROM roll_history WHERE player_uuid = ? AND roll_time >= ? AND roll_time <= ? AND id <= ?";
+    private static final String DELETE_RANGE_SQL = "DELETE FROM roll_history WHERE id > ? AND id <= ? AND roll_time < ?";
+
+    private final String upsertDailySql;
+    private final String tableSizeSql;
+    private final String checkpointSql;
+
+    public RollHistoryRepository(SqlDialect dialect) {
+        this.upsertDailySql = dialect.dailyRollupUpsertSql();
+        this.tableSizeSql = dialect.tableSizeSql("roll_history");
+        this.checkpointSql = dialect.checkpointSql();
+    }
+
+    // Bytes roll_history's rows and indexes take inside the database (not the size of any file)
+    public long tableSize(Connection conn) throws SQLException {
+        if (checkpointSql != null) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(checkpointSql);
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(tableSizeSql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    // One JDBC batch; the caller decides the transaction boundaries
+    public void insertBatch(Connection conn, List<RollHistoryJournal.Entry> entries) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            for (RollHistoryJournal.Entry entry : entries) {
+                stmt.setString(1, entry.playerUuid().toString());
+                stmt.setString(2, entry.perkName());
+                stmt.setInt(3, entry.level());
+                stmt.setString(4, entry.category());
+                stmt.setBoolean(5, entry.guaranteed());
+                stmt.setTimestamp(6, new Timestamp(entry.rolledAt()));
+                if (entry.seed() != null) {
+                    stmt.setLong(7, entry.seed());
+                } else {
+                    stmt.setNull(7, Types.BIGINT);
+                }
+                stmt.setString(8, entry.toolType());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Keyset pagination on the primary key; returns null when nothing older than the cutoff is left
+    public Chunk nextChunk(Connection conn, long afterId, Timestamp cutoff, int limit) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(NEXT_CHUNK_SQL)) {
+            stmt.setLong(1, afterId);
+            stmt.setTimestamp(2, cutoff);
+            stmt.setInt(3, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && rs.getInt(2) > 0) {
+                    return new Chunk(rs.getLong(1), rs.getInt(2));
+                }
+            }
+        }
+        return null;
+    }
+
+    // Adds the chunk's counts to roll_history_daily; returns how many daily rows were touched
+    public int rollUp(Connection conn, long afterId, long lastId, Timestamp cutoff) throws SQLException {
+        int touched = 0;
+        try (PreparedStatement select = conn.prepareStatement(AGGREGATE_SQL);
+             PreparedStatement upsert = conn.prepareStatement(upsertDailySql)) {
+            select.setLong(1, afterId);
+            select.setLong(2, lastId);
+            select.setTimestamp(3, cutoff);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    int rolls = rs.getInt("roll_count");
+                    int guaranteed = rs.getInt("guaranteed_count");
+                    upsert.setString(1, rs.getString("player_uuid"));
+                    upsert.setDate(2, rs.getDate("roll_date"));
+                    upsert.setString(3, rs.getString("perk_category"));
+                    upsert.setInt(4, rolls);
+                    upsert.setInt(5, guaranteed);
+                    upsert.addBatch();
+                    touched++;
+                }
+            }
+            if (touched > 0) {
+                upsert.executeBatch();
+            }
+        }
+        return touched;
+    }
+
+    public int deleteRange(Connection conn, long afterId, long lastId, Timestamp cutoff) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(DELETE_RANGE_SQL)) {
+            stmt.setLong(1, afterId);
+            stmt.setLong(2, lastId);
+            stmt.setTimestamp(3, cutoff);
+            return stmt.executeUpdate();
+        }
+    }
+
+    // Keyset pagination on the primary key
+    public List<Row> page(Connection conn, long afterId, int limit) throws SQLException {
+        List<Row> rows = new ArrayList<>(limit);
+        try (PreparedStatement stmt = conn.prepareStatement(PAGE_SQL)) {
+            stmt.setLong(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(readRow(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    public long maxId(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(MAX_ID_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    // A player's rows rolled between the two times (inclusive) with an id up to maxId;
+    // served by idx_roll_history_player_time
+    public List<Row> findBetween(Connection conn, UUID playerUuid, long from, long to, long maxId) throws SQLException {
+        List<Row> rows = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(FIND_BETWEEN_SQL)) {
+            stmt.setString(1, playerUuid.toString());
+            stmt.setTimestamp(2, new Timestamp(from));
+            stmt.setTimestamp(3, new Timestamp(to));
+            stmt.setLong(4, maxId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(readRow(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // null when the row does not exist (or was compacted away)
+    public Row findById(Connection conn, long id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(FIND_BY_ID_SQL)) {
+            stmt.setLong(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readRow(rs) : null;
+            }
+        }
+    }
+
+    // Newest first; served by idx_roll_history_player_time
+    public List<Row> findRecent(Connection conn, UUID playerUuid, int limit) throws SQLException {
+        List<Row> rows = new ArrayList<>(limit);
+        try (PreparedStatement stmt = conn.prepareStatement(FIND_RECENT_SQL)) {
+            stmt.setString(1, playerUuid.toString());
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(readRow(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private Row readRow(ResultSet rs) throws SQLException {
+        long seed = rs.getLong("roll_seed");
+        Long rollSeed = rs.wasNull() ? null : seed;
+        return new Row(rs.getLong("id"), new RollHistoryJournal.Entry(
+                UUID.fromString(rs.getString("player_uuid")), rs.getString("perk_name"), rs.getInt("perk_level"),
+                rs.getString("perk_category"), rs.getBoolean("was_guaranteed"), rs.getTimestamp("roll_time").getTime(), rollSeed,
+                rs.getString("tool_type")));
+    }
+}
@@ -0,0 +1,9 @@
+package com.edtools.edtoolsperks.database;
+
+// Result of DatabaseManager#settleRolls: the player's roll counters right after the roll was paid for
+public record RollSettlement(boolean success, int currentRolls, int totalRolls) {
+
+    public static RollSettlement insufficient(int currentRolls, int totalRolls) {
+        return new RollSettlement(false, currentRolls, totalRolls);
+    }
+}
@@ -0,0 +1,134 @@
+package com.edtools.edtoolsperks.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+// Versioned schema changes. Each migration runs once, in order, and is recorded in schema_version.
+// On H2 statements are idempotent so a database created by older builds (tables but no version table) upgrades cleanly.
+// To change the schema, append a migration - never edit one that has shipped.
+public class SchemaMigrator {
+
+    public record Migration(int version, String description, Function<SqlDialect, List<String>> statements) {
+    }
+
+    private static final String CREATE_VERSION_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS schema_version (
+                version INT PRIMARY KEY,
+                description VARCHAR(200) NOT NULL,
+                applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+            """;
+    private static final String CURRENT_VERSION_SQL = "SELECT COALESCE(MAX(version), 0) FROM schema_version";
+    private static final String RECORD_VERSION_SQL = "INSERT INTO schema_version (version, description) VALUES (?, ?)";
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Baseline tables", SqlDialect::baselineTablesSql),
+            // Per-player history ranges; the composite index also covers plain player_uuid lookups
+            new Migration(2, "Composite roll_history (player_uuid, roll_time) index", dialect -> List.of(
+                    dialect.createIndexSql("idx_roll_history_player_time", "roll_history", "player_uuid, roll_time"),
+                    dialect.dropIndexSql("idx_player_uuid", "roll_history"))),
+            new Migration(3, "tool_perks owner_uuid index", dialect -> List.of(
+                    dialect.createIndexSql("idx_tool_perks_owner", "tool_perks", "owner_uuid"))),
+            // Old roll_history rows are rolled up here by HistoryCompactor
+            new Migration(4, "roll_history_daily rollup table", dialect -> List.of(
+                    """
+                    CREATE TABLE IF NOT EXISTS roll_history_daily (
+                        player_uuid VARCHAR(36) NOT NULL,
+                        roll_date DATE NOT NULL,
+                        perk_category VARCHAR(20) NOT NULL,
+                        roll_count INT NOT NULL DEFAULT 0,
+                        guaranteed_count INT NOT NULL DEFAULT 0,
+                        PRIMARY KEY (player_uuid, roll_date, perk_category)
+                    )
+                    """)),
+            // Seed each roll was drawn from, for /etp replay; NULL for rolls made before this column existed
+            new Migration(5, "roll_history roll_seed column", dialect -> List.of(
+                    dialect.addColumnSql("roll_history", "roll_seed", "BIGINT NULL"))),
+            // Packed PityEngine counters, 16 bits per tier. The old single counter only ever tracked
+            // morada (the default first tier), so it moves to slot 0; pity_counter is no longer read.
+            new Migration(6, "players pity_state column", dialect -> List.of(
+                    dialect.addColumnSql("players", "pity_state", "BIGINT DEFAULT 0 NOT NULL"),
+                    "UPDATE players SET pity_state = LEAST(pity_counter, 65535) WHERE pity_counter > 0")),
+            // Drop table each roll was drawn from, so /etp replay uses the same one; NULL for older rows
+            new Migration(7, "roll_history tool_type column", dialect -> List.of(
+                    dialect.addColumnSql("roll_history", "tool_type", "VARCHAR(32) NULL")))
+    );
+
+    private final ConnectionPool pool;
+    private final SqlDialect dialect;
+    private final Logger logger;
+
+    public SchemaMigrator(ConnectionPool pool, SqlDialect dialect, Logger logger) {
+        this.pool = pool;
+        this.dialect = dialect;
+        this.logger = logger;
+    }
+
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+    }
+
+    // Returns how many migrations were applied
+    public int migrate() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(CREATE_VERSION_TABLE_SQL);
+            }
+
+            int current = getCurrentVersion(conn);
+            int applied = 0;
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() <= current) {
+                    continue;
+                }
+                apply(conn, migration);
+                applied++;
+            }
+            return applied;
+        }
+    }
+
+    public int getCurrentVersion() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return getCurrentVersion(conn);
+        }
+    }
+
+    private int getCurrentVersion(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(CURRENT_VERSION_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        long start = System.currentTimeMillis();
+        conn.setAutoCommit(false);
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : migration.statements().apply(dialect)) {
+                    stmt.execute(sql);
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(RECORD_VERSION_SQL)) {
+                stmt.setInt(1, migration.version());
+                stmt.setString(2, migration.description());
+                stmt.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Migration " + migration.version() + " (" + migration.description() + ") failed: " + e.getMessage(), e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        logger.info("Applied schema migration " + migration.version() + ": " + migration.description()
+                + " (" + (System.currentTimeMillis() - start) + "ms)");
+    }
+}
@@ -0,0 +1,196 @@
+package com.edtools.edtoolsperks.database;
+
+import java.util.List;
+import java.util.Locale;
+
+// SQL that differs between backends. Everything else is plain SQL understood by both,
+// so H2 runs in its own mode rather than emulating MySQL.
+public enum SqlDialect {
+
+    H2 {
+        @Override
+        public String identityColumnSql() {
+            return "INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY";
+        }
+
+        @Override
+        public String playerInsertIfAbsentSql() {
+            return "MERGE INTO players p USING (VALUES (CAST(? AS VARCHAR(36)), CAST(? AS VARCHAR(16)))) s (uuid, username) " +
+                    "ON p.uuid = s.uuid WHEN NOT MATCHED THEN INSERT (uuid, username) VALUES (s.uuid, s.username)";
+        }
+
+        @Override
+        public String playerUpsertSql() {
+            return "MERGE INTO players (uuid, username, current_rolls, total_rolls, pity_state) KEY (uuid) VALUES (?, ?, ?, ?, ?)";
+        }
+
+        @Override
+        public String toolPerkUpsertSql() {
+            return "MERGE INTO tool_perks (tool_uuid, owner_uuid, perk_name, perk_level) KEY (tool_uuid, perk_name) VALUES (?, ?, ?, ?)";
+        }
+
+        @Override
+        public String dailyRollupUpsertSql() {
+            return "MERGE INTO roll_history_daily d USING (VALUES (CAST(? AS VARCHAR(36)), CAST(? AS DATE), CAST(? AS VARCHAR(20)), CAST(? AS INT), CAST(? AS INT))) " +
+                    "s (player_uuid, roll_date, perk_category, roll_count, guaranteed_count) " +
+                    "ON d.player_uuid = s.player_uuid AND d.roll_date = s.roll_date AND d.perk_category = s.perk_category " +
+                    "WHEN MATCHED THEN UPDATE SET roll_count = d.roll_count + s.roll_count, guaranteed_count = d.guaranteed_count + s.guaranteed_count " +
+                    "WHEN NOT MATCHED THEN INSERT (player_uuid, roll_date, perk_category, roll_count, guaranteed_count) " +
+                    "VALUES (s.player_uuid, s.roll_date, s.perk_category, s.roll_count, s.guaranteed_count)";
+        }
+
+        @Override
+        public String createIndexSql(String name, String table, String columns) {
+            return "CREATE INDEX IF NOT EXISTS " + name + " ON " + table + " (" + columns + ")";
+        }
+
+        @Override
+        public String dropIndexSql(String name, String table) {
+            return "DROP INDEX IF EXISTS " + name;
+        }
+
+        @Override
+        public String addColumnSql(String table, String column, String type) {
+            return "ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS " + column + " " + type;
+        }
+
+        // Counts the table's pages (rows and indexes) in the MVStore. Only pages already written to the
+        // file are counted, hence the CHECKPOINT first.
+        @Override
+        public String tableSizeSql(String table) {
+            return "SELECT DISK_SPACE_USED('" + table.toUpperCase(Locale.ROOT) + "')";
+        }
+
+        @Override
+        public String checkpointSql() {
+            return "CHECKPOINT";
+        }
+    },
+
+    MYSQL {
+        @Override
+        public String identityColumnSql() {
+            return "INT AUTO_INCREMENT PRIMARY KEY";
+        }
+
+        @Override
+        public String playerInsertIfAbsentSql() {
+            return "INSERT IGNORE INTO players (uuid, username) VALUES (?, ?)";
+        }
+
+        @Override
+        public String playerUpsertSql() {
+            return "INSERT INTO players (uuid, username, current_rolls, total_rolls, pity_state) VALUES (?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE username = VALUES(username), current_rolls = VALUES(current_rolls), " +
+                    "total_rolls = VALUES(total_rolls), pity_state = VALUES(pity_state)";
+        }
+
+        @Override
+        public String toolPerkUpsertSql() {
+            return "INSERT INTO tool_perks (tool_uuid, owner_uuid, perk_name, perk_level) VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE owner_uuid = VALUES(owner_uuid), perk_level = VALUES(perk_level)";
+        }
+
+        @Override
+        public String dailyRollupUpsertSql() {
+            return "INSERT INTO roll_history_daily (player_uuid, roll_date, perk_category, roll_count, guaranteed_count) VALUES (?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE roll_count = roll_count + VALUES(roll_count), guaranteed_count = guaranteed_count + VALUES(guaranteed_count)";
+        }
+
+        // Migrations run once per database, so no IF NOT EXISTS (MySQL does not support it for indexes)
+        @Override
+        public String createIndexSql(String name, String table, String columns) {
+            return "CREATE INDEX " + name + " ON " + table + " (" + columns + ")";
+        }
+
+        @Override
+        public String dropIndexSql(String name, String table) {
+            return "DROP INDEX " + name + " ON " + table;
+        }
+
+        @Override
+        public String addColumnSql(String table, String column, String type) {
+            return "ALTER TABLE " + table + " ADD COLUMN " + column + " " + type;
+        }
+
+        // InnoDB's own estimate, refreshed when the table's statistics are
+        @Override
+        public String tableSizeSql(String table) {
+            return "SELECT COALESCE(SUM(data_length + index_length), 0) FROM information_schema.TABLES " +
+                    "WHERE table_schema = DATABASE() AND table_name = '" + table + "'";
+        }
+
+        @Override
+        public String checkpointSql() {
+            return null;
+        }
+    };
+
+    // Column definition for an auto-numbered INT primary key
+    public abstract String identityColumnSql();
+
+    // Parameters: uuid, username. Updates 0 rows when the player already exists.
+    public abstract String playerInsertIfAbsentSql();
+
+    // Parameters: uuid, username, current_rolls, total_rolls, pity_state (existing rows are overwritten)
+    public abstract String playerUpsertSql();
+
+    // Parameters: tool_uuid, owner_uuid, perk_name, perk_level
+    public abstract String toolPerkUpsertSql();
+
+    // Parameters: player_uuid, roll_date, perk_category, roll_count, guaranteed_count (counts are added)
+    public abstract String dailyRollupUpsertSql();
+
+    public abstract String createIndexSql(String name, String table, String columns);
+
+    public abstract String dropIndexSql(String name, String table);
+
+    public abstract String addColumnSql(String table, String column, String type);
+
+    // One row, one column: bytes the table's rows and indexes take inside the database
+    public abstract String tableSizeSql(String table);
+
+    // Run before tableSizeSql so it sees every committed change; null when it always does
+    public abstract String checkpointSql();
+
+    // Schema migration 1. Idempotent on H2, where databases created by older builds already have these
+    // tables (and the same index names, which were declared inline back then).
+    public List<String> baselineTablesSql() {
+        return List.of(
+                """
+                CREATE TABLE IF NOT EXISTS players (
+                    uuid VARCHAR(36) PRIMARY KEY,
+                    username VARCHAR(16) NOT NULL,
+                    total_rolls INT DEFAULT 0,
+                    current_rolls INT DEFAULT 0,
+                    pity_counter INT DEFAULT 0,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+                """,
+                """
+                CREATE TABLE IF NOT EXISTS tool_perks (
+                    id %s,
+                    tool_uuid VARCHAR(36) NOT NULL,
+                    owner_uuid VARCHAR(36) NOT NULL,
+                    perk_name VARCHAR(50) NOT NULL,
+                    perk_level INT DEFAULT 1,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    CONSTRAINT unique_tool_perk UNIQUE (tool_uuid, perk_name)
+                )
+                """.formatted(identityColumnSql()),
+                """
+                CREATE TABLE IF NOT EXISTS roll_history (
+                    id %s,
+                    player_uuid VARCHAR(36) NOT NULL,
+                    perk_name VARCHAR(50) NOT NULL,
+                    perk_level INT NOT NULL,
+                    perk_category VARCHAR(20) NOT NULL,
+                    was_guaranteed BOOLEAN DEFAULT FALSE,
+                    roll_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+                """.formatted(identityColumnSql()),
+                createIndexSql("idx_player_uuid", "roll_history", "player_uuid"),
+                createIndexSql("idx_roll_time", "roll_history", "roll_time"));
+    }
+}
@@ -0,0 +1,154 @@
+package com.edtools.edtoolsperks.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-connection LRU of prepared statements. Callers keep using try-with-resources:
+// closing the handed-out statement only clears its parameters and returns it to the cache.
+final class StatementCache {
+
+    private final Connection connection;
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    private final Map<String, PreparedStatement> statements;
+    private final Set<PreparedStatement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    StatementCache(Connection connection, int maxSize, LongAdder hits, LongAdder misses) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                // A statement still in use is closed when it comes back
+                if (!inUse.contains(eldest.getValue())) {
+                    closeQuietly(eldest.getValue());
+                }
+                return true;
+            }
+        };
+    }
+
+    synchronized PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement != null && inUse.contains(statement)) {
+            // Same SQL already open on this connection (nested use): give out a throwaway one
+            misses.increment();
+            return connection.prepareStatement(sql);
+        }
+
+        if (statement != null && !statement.isClosed()) {
+            hits.increment();
+        } else {
+            misses.increment();
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+
+        inUse.add(statement);
+        return wrap(sql, statement);
+    }
+
+    private synchronized void release(String sql, PreparedStatement statement) {
+        inUse.remove(statement);
+        if (statements.get(sql) != statement) {
+            // Evicted while it was borrowed
+            closeQuietly(statement);
+            return;
+        }
+
+        try {
+            statement.clearParameters();
+            statement.clearBatch();
+        } catch (SQLException e) {
+            statements.remove(sql);
+            closeQuietly(statement);
+        }
+    }
+
+    synchronized void close() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+        inUse.clear();
+    }
+
+    private PreparedStatement wrap(String sql, PreparedStatement statement) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new CachedStatementHandler(sql, statement));
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private final class CachedStatementHandler implements InvocationHandler {
+        private final String sql;
+        private final PreparedStatement statement;
+        private boolean returned;
+
+        private CachedStatementHandler(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release(sql, statement);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || statement.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "CachedStatement[" + sql + "]";
+                }
+                default -> {
+                    if (returned) {
+                        throw new SQLException("Statement has already been returned to the cache");
+                    }
+                }
+            }
+
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.edtools.edtoolsperks.database;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Where the data lives, selected by database.type in config.yml
+public interface StorageProvider {
+
+    String getName();
+
+    SqlDialect getDialect();
+
+    void loadDriver() throws ClassNotFoundException;
+
+    Connection openConnection() throws SQLException;
+
+    // The local database file, or null when the database is on another host
+    File getDatabaseFile();
+
+    static StorageProvider fromConfig(FileConfiguration config, File dataFolder) {
+        String type = config.getString("database.type", "h2").trim().toLowerCase();
+        return switch (type) {
+            case "mysql", "mariadb", "h2-server", "network" -> new NetworkStorageProvider(
+                    config.getString("database.network.url", "jdbc:mysql://localhost:3306/edtoolsperks"),
+                    config.getString("database.network.username", "root"),
+                    config.getString("database.network.password", ""));
+            default -> new EmbeddedH2StorageProvider(dataFolder, config.getString("database.file", "edtoolsperks.db"));
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package com.edtools.edtoolsperks.database;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded LRU of tool id -> perk. Tools without a perk are cached too (as Optional.empty()),
+// since most hotbar lookups are for tools that never rolled anything.
+// Online players' tools are pinned outside the LRU until they quit.
+public class ToolPerkCache {
+
+    public record Stats(int size, int maxSize, int pinned, long hits, long negativeHits, long misses, long evictions) {
+    }
+
+    private final int maxSize;
+    private final Map<String, Optional<ToolPerkRecord>> entries;
+    private final Map<String, Optional<ToolPerkRecord>> pinned = new HashMap<>();
+    private final Map<UUID, Set<String>> pinnedByOwner = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ToolPerkCache(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Optional<ToolPerkRecord>> eldest) {
+                if (size() > ToolPerkCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // null = not cached, Optional.empty() = cached "no perk"
+    public synchronized Optional<ToolPerkRecord> get(String toolId) {
+        Optional<ToolPerkRecord> cached = pinned.get(toolId);
+        if (cached == null) {
+            cached = entries.get(toolId);
+        }
+        if (cached == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+            if (cached.isEmpty()) {
+                negativeHits.increment();
+            }
+        }
+        return cached;
+    }
+
+    // Used by database loads: never overwrites a value written while the load was running
+    public synchronized void putIfAbsent(String toolId, ToolPerkRecord record) {
+        if (!pinned.containsKey(toolId)) {
+            entries.putIfAbsent(toolId, Optional.ofNullable(record));
+        }
+    }
+
+    // Used by writes; a null record means the tool has no perk
+    public synchronized void put(String toolId, ToolPerkRecord record) {
+        if (pinned.containsKey(toolId)) {
+            pinned.put(toolId, Optional.ofNullable(record));
+        } else {
+            entries.put(toolId, Optional.ofNullable(record));
+        }
+    }
+
+    public synchronized void invalidate(String toolId) {
+        pinned.remove(toolId);
+        entries.remove(toolId);
+    }
+
+    // Keeps an owner's tools out of LRU eviction. A value already cached wins over the
+    // preloaded one, since it may have been written after the preload query ran.
+    public synchronized void pin(UUID owner, List<ToolPerkRecord> records) {
+        Set<String> toolIds = pinnedByOwner.computeIfAbsent(owner, key -> new HashSet<>());
+        for (ToolPerkRecord record : records) {
+            Optional<ToolPerkRecord> current = entries.remove(record.toolId());
+            if (current == null) {
+                current = pinned.getOrDefault(record.toolId(), Optional.of(record));
+            }
+            pinned.put(record.toolId(), current);
+            toolIds.add(record.toolId());
+        }
+    }
+
+    public synchronized int unpin(UUID owner) {
+        Set<String> toolIds = pinnedByOwner.remove(owner);
+        if (toolIds == null) {
+            return 0;
+        }
+        for (String toolId : toolIds) {
+            pinned.remove(toolId);
+        }
+        return toolIds.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        pinned.clear();
+        pinnedByOwner.clear();
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(entries.size(), maxSize, pinned.size(), hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum());
+    }
+}
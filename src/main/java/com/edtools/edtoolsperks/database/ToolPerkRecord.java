@@ -0,0 +1,15 @@
+package com.edtools.edtoolsperks.database;
+
+// A tool's perk as stored in tool_perks (or read back from the tool's NBT)
+public record ToolPerkRecord(String toolId, String perkId, int level) {
+
+    // Same perk and level, regardless of where the tool id came from
+    public boolean samePerk(ToolPerkRecord other) {
+        return other != null && perkId.equals(other.perkId) && level == other.level;
+    }
+
+    @Override
+    public String toString() {
+        return perkId + ":" + level;
+    }
+}
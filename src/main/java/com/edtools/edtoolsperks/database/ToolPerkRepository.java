@@ -0,0 +1,116 @@
+package com.edtools.edtoolsperks.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// SQL for the tool_perks table. A tool holds a single perk at a time.
+public class ToolPerkRepository {
+
+    // A tool_perks row with its owner, used by export/import
+    public record OwnedPerk(long id, UUID owner, ToolPerkRecord perk) {
+    }
+
+    private static final String DELETE_OTHERS_SQL = "DELETE FROM tool_perks WHERE tool_uuid = ? AND perk_name <> ?";
+    private static final String SELECT_SQL = "SELECT perk_name, perk_level FROM tool_perks WHERE tool_uuid = ?";
+    private static final String SELECT_BY_OWNER_SQL = "SELECT tool_uuid, perk_name, perk_level FROM tool_perks WHERE owner_uuid = ?";
+    private static final String DELETE_SQL = "DELETE FROM tool_perks WHERE tool_uuid = ?";
+    private static final String PAGE_SQL = "SELECT id, tool_uuid, owner_uuid, perk_name, perk_level FROM tool_perks WHERE id > ? ORDER BY id LIMIT ?";
+
+    private final String upsertSql;
+
+    public ToolPerkRepository(SqlDialect dialect) {
+        this.upsertSql = dialect.toolPerkUpsertSql();
+    }
+
+    // The unique key is (tool_uuid, perk_name), so the previous perk has to go explicitly.
+    // Run inside a transaction so readers never see the tool without a perk.
+    public void save(Connection conn, ToolPerkRecord record, UUID ownerUuid) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(DELETE_OTHERS_SQL)) {
+            stmt.setString(1, record.toolId());
+            stmt.setString(2, record.perkId());
+            stmt.executeUpdate();
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(upsertSql)) {
+            stmt.setString(1, record.toolId());
+            stmt.setString(2, ownerUuid.toString());
+            stmt.setString(3, record.perkId());
+            stmt.setInt(4, record.level());
+            stmt.executeUpdate();
+        }
+    }
+
+    public ToolPerkRecord find(Connection conn, String toolId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_SQL)) {
+            stmt.setString(1, toolId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new ToolPerkRecord(toolId, rs.getString("perk_name"), rs.getInt("perk_level"));
+                }
+            }
+        }
+        return null;
+    }
+
+    // Served by idx_tool_perks_owner
+    public List<ToolPerkRecord> findByOwner(Connection conn, UUID ownerUuid) throws SQLException {
+        List<ToolPerkRecord> records = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_BY_OWNER_SQL)) {
+            stmt.setString(1, ownerUuid.toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    records.add(new ToolPerkRecord(rs.getString("tool_uuid"), rs.getString("perk_name"), rs.getInt("perk_level")));
+                }
+            }
+        }
+        return records;
+    }
+
+    public int delete(Connection conn, String toolId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(DELETE_SQL)) {
+            stmt.setString(1, toolId);
+            return stmt.executeUpdate();
+        }
+    }
+
+    // Keyset pagination on the primary key
+    public List<OwnedPerk> page(Connection conn, long afterId, int limit) throws SQLException {
+        List<OwnedPerk> rows = new ArrayList<>(limit);
+        try (PreparedStatement stmt = conn.prepareStatement(PAGE_SQL)) {
+            stmt.setLong(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new OwnedPerk(rs.getLong("id"), UUID.fromString(rs.getString("owner_uuid")),
+                            new ToolPerkRecord(rs.getString("tool_uuid"), rs.getString("perk_name"), rs.getInt("perk_level"))));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Same rules as save(), as two JDBC batches; run inside a transaction
+    public void saveBatch(Connection conn, List<OwnedPerk> rows) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement(DELETE_OTHERS_SQL);
+             PreparedStatement upsert = conn.prepareStatement(upsertSql)) {
+            for (OwnedPerk row : rows) {
+                delete.setString(1, row.perk().toolId());
+                delete.setString(2, row.perk().perkId());
+                delete.addBatch();
+
+                upsert.setString(1, row.perk().toolId());
+                upsert.setString(2, row.owner().toString());
+                upsert.setString(3, row.perk().perkId());
+                upsert.setInt(4, row.perk().level());
+                upsert.addBatch();
+            }
+            delete.executeBatch();
+            upsert.executeBatch();
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.edtools.edtoolsperks.gui;
 
 import com.edtools.edtoolsperks.EdToolsPerks;
+import com.edtools.edtoolsperks.perks.PityEngine;
+import com.edtools.edtoolsperks.profile.PlayerProfile;
+import com.edtools.edtoolsperks.utils.ConfigUtils;
 import com.edtools.edtoolsperks.utils.ItemUtils;
 import com.edtools.edtoolsperks.utils.MessageUtils;
 import org.bukkit.Bukkit;
@@ -18,29 +21,69 @@ public class GUIManager {
     private final EdToolsPerks plugin;
     public final Map<UUID, String> openGUIs = new HashMap<>();
     private final Map<UUID, Map<String, String>> guiPlaceholders = new HashMap<>();
-    public final Map<String, GUIConfiguration> guiConfigurations = new HashMap<>();
+    // Replaced as a whole by loadGUIs and applyGUIsFile, so readers see one complete set
+    private volatile Map<String, LoadedGUI> guiConfigurations = Map.of();
+
+    private static final List<String> GUI_IDS = List.of("main-gui", "perks-list-gui", "animation-gui");
+
+    // A parsed GUI plus the section values it was parsed from, to tell whether guis.yml changed it
+    private record LoadedGUI(GUIConfiguration config, Map<String, Object> source) {
+    }
 
     public GUIManager(EdToolsPerks plugin) {
         this.plugin = plugin;
     }
 
     public void loadGUIs() {
-        guiConfigurations.clear();
-        loadGUIConfiguration("main-gui");
-        loadGUIConfiguration("perks-list-gui");
-        loadGUIConfiguration("animation-gui");
+        guiConfigurations = buildGUIs(plugin.getConfigManager().getGUIsConfig(), Map.of());
         MessageUtils.sendConsole("&aGUI Manager initialized with " + guiConfigurations.size() + " GUI configurations!");
     }
 
-    private void loadGUIConfiguration(String guiId) {
-        FileConfiguration guisConfig = plugin.getConfigManager().getGUIsConfig();
-        ConfigurationSection guiSection = guisConfig.getConfigurationSection(guiId);
-        
-        if (guiSection == null) {
-            MessageUtils.sendConsole("&cGUI configuration '" + guiId + "' not found!");
-            return;
+    // Called by ConfigWatcher, on its thread, with a freshly parsed guis.yml. Only GUIs whose section
+    // changed are rebuilt; the rest keep their current GUIConfiguration. Inventories that are already
+    // open keep their items until they are opened again.
+    public void applyGUIsFile(FileConfiguration guisConfig) {
+        Map<String, LoadedGUI> previous = guiConfigurations;
+        Map<String, LoadedGUI> loaded = buildGUIs(guisConfig, previous);
+
+        List<String> changed = new ArrayList<>();
+        for (String guiId : GUI_IDS) {
+            if (loaded.get(guiId) != previous.get(guiId)) {
+                changed.add(guiId);
+            }
         }
-        
+        guiConfigurations = loaded;
+        if (!changed.isEmpty()) {
+            MessageUtils.sendConsole("&aguis.yml changed: reloaded " + String.join(", ", changed));
+        }
+    }
+
+    private Map<String, LoadedGUI> buildGUIs(FileConfiguration guisConfig, Map<String, LoadedGUI> previous) {
+        Map<String, LoadedGUI> loaded = new HashMap<>();
+        for (String guiId : GUI_IDS) {
+            ConfigurationSection guiSection = guisConfig.getConfigurationSection(guiId);
+            if (guiSection == null) {
+                MessageUtils.sendConsole("&cGUI configuration '" + guiId + "' not found!");
+                continue;
+            }
+
+            Map<String, Object> source = ConfigUtils.fingerprint(guiSection);
+            LoadedGUI current = previous.get(guiId);
+            if (current != null && current.source().equals(source)) {
+                loaded.put(guiId, current);
+            } else {
+                loaded.put(guiId, new LoadedGUI(loadGUIConfiguration(guiSection), source));
+            }
+        }
+        return Map.copyOf(loaded);
+    }
+
+    public GUIConfiguration getGUIConfiguration(String guiId) {
+        LoadedGUI gui = guiConfigurations.get(guiId);
+        return gui != null ? gui.config() : null;
+    }
+
+    private GUIConfiguration loadGUIConfiguration(ConfigurationSection guiSection) {
         String title = guiSection.getString("title", "&8GUI");
         int size = guiSection.getInt("size", 54);
         
@@ -68,7 +111,7 @@ public class GUIManager {
             }
         }
         
-        guiConfigurations.put(guiId, new GUIConfiguration(title, size, items, settings));
+        return new GUIConfiguration(title, size, items, settings);
     }
 
     private GUIItem loadGUIItem(ConfigurationSection section) {
@@ -122,7 +165,7 @@ public class GUIManager {
     }
 
     public void openMainGUI(Player player) {
-        GUIConfiguration config = guiConfigurations.get("main-gui");
+        GUIConfiguration config = getGUIConfiguration("main-gui");
         if (config == null) {
             MessageUtils.send(player, "&cGUI configuration not found!");
             return;
@@ -132,35 +175,43 @@ public class GUIManager {
         Inventory inventory = Bukkit.createInventory(null, config.getSize(), 
             MessageUtils.colorize(config.getTitle()));
 
-        // Set placeholders for this player
-        Map<String, String> placeholders = new HashMap<>();
-        
-        // Get player data asynchronously and then update GUI
+        // Cached profile: no database round-trip needed
+        PlayerProfile profile = plugin.getProfileManager().getProfile(player.getUniqueId());
+        if (profile != null) {
+            showMainGUI(player, inventory, config, profile.getCurrentRolls(), profile.getTotalRolls());
+            return;
+        }
+
+        // Profile still loading, get player data asynchronously and then update GUI
         plugin.getDatabaseManager().getPlayerRolls(player.getUniqueId()).thenAccept(rolls -> {
             plugin.getDatabaseManager().getTotalRolls(player.getUniqueId()).thenAccept(totalRolls -> {
-                placeholders.put("player_rolls", String.valueOf(rolls));
-                placeholders.put("total_rolls", String.valueOf(totalRolls));
-                placeholders.put("pity_bar", createPityBar(totalRolls));
-                
-                // Add tool placeholders
-                ItemStack tool = player.getInventory().getItemInMainHand();
-                placeholders.put("tool_material", tool.getType().name());
-                placeholders.put("tool_name", tool.hasItemMeta() && tool.getItemMeta().hasDisplayName() 
-                    ? tool.getItemMeta().getDisplayName() : tool.getType().name());
-                
                 // Run on main thread to update inventory
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    populateGUIFromConfig(inventory, config, player, placeholders);
-                    player.openInventory(inventory);
-                    openGUIs.put(player.getUniqueId(), "main");
-                    guiPlaceholders.put(player.getUniqueId(), placeholders);
-                });
+                Bukkit.getScheduler().runTask(plugin, () -> showMainGUI(player, inventory, config, rolls, totalRolls));
             });
         });
     }
 
+    private void showMainGUI(Player player, Inventory inventory, GUIConfiguration config, int rolls, int totalRolls) {
+        // Set placeholders for this player
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("player_rolls", String.valueOf(rolls));
+        placeholders.put("total_rolls", String.valueOf(totalRolls));
+        placeholders.put("pity_bar", createPityBar(player));
+
+        // Add tool placeholders
+        ItemStack tool = player.getInventory().getItemInMainHand();
+        placeholders.put("tool_material", tool.getType().name());
+        placeholders.put("tool_name", tool.hasItemMeta() && tool.getItemMeta().hasDisplayName()
+            ? tool.getItemMeta().getDisplayName() : tool.getType().name());
+
+        populateGUIFromConfig(inventory, config, player, placeholders);
+        player.openInventory(inventory);
+        openGUIs.put(player.getUniqueId(), "main");
+        guiPlaceholders.put(player.getUniqueId(), placeholders);
+    }
+
     public void openPerksListGUI(Player player) {
-        GUIConfiguration config = guiConfigurations.get("perks-list-gui");
+        GUIConfiguration config = getGUIConfiguration("perks-list-gui");
         if (config == null) {
             MessageUtils.send(player, "&cGUI configuration not found!");
             return;
@@ -236,11 +287,8 @@ public class GUIManager {
             for (var perk : perks) {
                 if (slotIndex >= perkSlots.size()) break;
                 
-                ItemStack perkItem = ItemUtils.createItem(perk.getDisplayMaterial().name(),
-                    plugin.getPerkManager().getCategory(categoryId).getColor() + perk.getDisplayName(),
-                    perk.getLore().toArray(new String[0]));
-                
-                inventory.setItem(perkSlots.get(slotIndex), perkItem);
+                // Prebuilt when perks were loaded; this is only a copy
+                inventory.setItem(perkSlots.get(slotIndex), perk.createDisplayItem());
                 slotIndex++;
             }
             if (slotIndex >= perkSlots.size()) break;
@@ -267,11 +315,19 @@ public class GUIManager {
             });
     }
 
-    private String createPityBar(int totalRolls) {
-        int maxRolls = plugin.getConfigManager().getConfig().getInt("rolls.guaranteed-purple-at", 500);
+    // Progress towards the rarest pity tier's guarantee
+    private String createPityBar(Player player) {
+        PityEngine pity = plugin.getPerkManager().getRegistry().getPity();
+        PityEngine.Tier top = pity.getTopTier();
+        int maxRolls = top == null ? 0 : top.hard() > 0 ? top.hard() : top.softStart();
+        if (maxRolls <= 0) {
+            return MessageUtils.createProgressBar(0, 1, 20, "&d▌", "&8▌");
+        }
         
+        PlayerProfile profile = plugin.getProfileManager().getProfile(player.getUniqueId());
+        int count = profile != null ? pity.getCount(profile.getPityState(), pity.indexOf(top.category())) : 0;
         return MessageUtils.createProgressBar(
-            Math.min(totalRolls, maxRolls), 
+            Math.min(count, maxRolls), 
             maxRolls, 
             20, 
             "&d▌", 
@@ -302,7 +358,7 @@ public class GUIManager {
     }
 
     public GUIItem getGUIItem(String guiId, String itemKey) {
-        GUIConfiguration config = guiConfigurations.get(guiId);
+        GUIConfiguration config = getGUIConfiguration(guiId);
         return config != null ? config.getItem(itemKey) : null;
     }
 }
\ No newline at end of file
@@ -191,25 +191,12 @@ public class RollAnimationManager {
         }
     }
 
+    // Only the item changes here; the roll was saved to the database when it was drawn
     private void applyPerkToTool() {
         ItemStack tool = player.getInventory().getItemInMainHand();
         
         // Apply perk via EdTools integration and NBT
         plugin.getEdToolsIntegration().applyPerkToTool(tool, resultPerk, resultLevel);
-        
-        // Save to database (wait for completion to ensure synchronization)
-        String toolUUID = plugin.getEdToolsIntegration().getToolUUID(tool);
-        if (toolUUID != null) {
-            try {
-                // Wait for database save to complete before proceeding
-                plugin.getDatabaseManager().savePerkToTool(toolUUID, player.getUniqueId(), resultPerk.getId(), resultLevel).join();
-                plugin.getDatabaseManager().saveRollHistory(player.getUniqueId(), resultPerk.getId(), resultLevel, resultPerk.getCategory(), wasGuaranteed);
-                plugin.getLogger().info("Perk saved to database successfully: " + resultPerk.getId() + ":" + resultLevel);
-            } catch (Exception e) {
-                plugin.getLogger().severe("Failed to save perk to database: " + e.getMessage());
-                e.printStackTrace();
-            }
-        }
     }
 
     public void stopAnimation() {
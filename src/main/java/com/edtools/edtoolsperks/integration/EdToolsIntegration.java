@@ -1,11 +1,14 @@
 package com.edtools.edtoolsperks.integration;
 
 import com.edtools.edtoolsperks.EdToolsPerks;
+import com.edtools.edtoolsperks.database.ToolPerkRecord;
+import com.edtools.edtoolsperks.perks.BoostType;
 import com.edtools.edtoolsperks.perks.Perk;
 import com.edtools.edtoolsperks.utils.MessageUtils;
 import es.edwardbelt.edgens.iapi.EdToolsAPI;
 import es.edwardbelt.edgens.iapi.EdToolsOmniToolAPI;
 import es.edwardbelt.edgens.iapi.EdToolsCurrencyAPI;
+import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
@@ -15,6 +18,7 @@ import org.bukkit.plugin.RegisteredServiceProvider;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 public class EdToolsIntegration {
 
@@ -22,9 +26,29 @@ public class EdToolsIntegration {
     private EdToolsAPI edToolsAPI;
     private EdToolsOmniToolAPI omniToolAPI;
     private EdToolsCurrencyAPI currencyAPI;
+    // Perk, level and boosts in one tag (see ToolPerkData)
+    private final NamespacedKey perkDataKey;
+    // Separate keys written before perk_data existed. Still read, removed on the next write to the tool.
+    private final NamespacedKey legacyPerkKey;
+    private final NamespacedKey legacyLevelKey;
+    private final NamespacedKey[] legacyKeys;
+    // Legacy NBT keys for each BoostType, indexed by ordinal
+    private final NamespacedKey[] boostKeys;
 
     public EdToolsIntegration(EdToolsPerks plugin) {
         this.plugin = plugin;
+        this.perkDataKey = plugin.getKey("perk_data");
+        this.legacyPerkKey = plugin.getKey("perk_name");
+        this.legacyLevelKey = plugin.getKey("perk_level");
+        this.boostKeys = new NamespacedKey[BoostType.ALL.size()];
+        for (BoostType type : BoostType.ALL) {
+            boostKeys[type.ordinal()] = plugin.getKey(type.getDataKey());
+        }
+
+        List<NamespacedKey> legacy = new ArrayList<>(List.of(legacyPerkKey, legacyLevelKey,
+                plugin.getKey("edtools_perk_id"), plugin.getKey("edtools_perk_level")));
+        legacy.addAll(List.of(boostKeys));
+        this.legacyKeys = legacy.toArray(new NamespacedKey[0]);
     }
 
     public void initialize() {
@@ -86,6 +110,15 @@ public class EdToolsIntegration {
         return isEdTool(item);
     }
 
+    // Tool type from the material name, e.g. DIAMOND_HOE -> "hoe"; matches the perk "tool" setting
+    public String getToolType(ItemStack item) {
+        if (!isEdTool(item)) {
+            return null;
+        }
+        String material = item.getType().name();
+        return material.substring(material.lastIndexOf('_') + 1).toLowerCase(Locale.ROOT);
+    }
+
     public String getToolUUID(ItemStack item) {
         if (!isEdTool(item)) {
             return null;
@@ -139,6 +172,8 @@ public class EdToolsIntegration {
         return "tool-" + hash;
     }
 
+    // One ItemMeta read and one write: the perk_data tag, the lore line and the removal of any
+    // legacy keys all go into the same meta. Boosts are the level's own, not added to what was there.
     public void applyPerkToTool(ItemStack tool, Perk perk, int level) {
         if (!isEdTool(tool)) {
             plugin.getLogger().warning("applyPerkToTool: Item is not an EdTool: " + tool.getType());
@@ -151,75 +186,31 @@ public class EdToolsIntegration {
             return;
         }
 
-        plugin.getLogger().info("=== APPLYING PERK TO TOOL ===");
-        plugin.getLogger().info("Tool: " + tool.getType());
-        plugin.getLogger().info("Perk: " + perk.getDisplayName() + " Level " + level);
-
-        // Store perk information in NBT
         PersistentDataContainer pdc = meta.getPersistentDataContainer();
-        pdc.set(plugin.getKey("perk_name"), PersistentDataType.STRING, perk.getId());
-        pdc.set(plugin.getKey("perk_level"), PersistentDataType.INTEGER, level);
-        
-        // Store additional metadata for EdTools integration
-        pdc.set(plugin.getKey("edtools_perk_id"), PersistentDataType.STRING, perk.getId());
-        pdc.set(plugin.getKey("edtools_perk_level"), PersistentDataType.INTEGER, level);
-        
-        plugin.getLogger().info("NBT data written to tool");
+        pdc.set(perkDataKey, ToolPerkData.TYPE, ToolPerkData.of(perk, level));
+        removeLegacyKeys(pdc);
 
         // Add perk to lore since EdTools doesn't automatically handle it
         addPerkToLore(meta, perk, level);
         tool.setItemMeta(meta);
-        
-        plugin.getLogger().info("Lore updated and ItemMeta applied to tool");
-        
-        // Verify the NBT was saved correctly
-        ItemMeta verifyMeta = tool.getItemMeta();
-        if (verifyMeta != null) {
-            PersistentDataContainer verifyPdc = verifyMeta.getPersistentDataContainer();
-            String savedPerkName = verifyPdc.get(plugin.getKey("perk_name"), PersistentDataType.STRING);
-            Integer savedPerkLevel = verifyPdc.get(plugin.getKey("perk_level"), PersistentDataType.INTEGER);
-            plugin.getLogger().info("Verification - Saved perk: " + savedPerkName + " Level: " + savedPerkLevel);
-        }
 
-        // Apply boost effects to EdTools
-        applyBoostEffects(tool, perk, level);
-        
-        plugin.getLogger().info("=== PERK APPLICATION COMPLETE ===");
+        plugin.getLogger().info("Applied perk " + perk.getId() + " level " + level + " to " + tool.getType());
     }
 
-    private void applyBoostEffects(ItemStack tool, Perk perk, int level) {
-        if (perk.getLevel(level) == null) {
-            return;
-        }
-
-        Perk.PerkLevel perkLevel = perk.getLevel(level);
-        
-        // Apply boosts to EdTools enchantments/currencies
-        // This would interact with EdTools' boost system
-        for (var entry : perkLevel.getParsedBoosts().entrySet()) {
-            String boostType = entry.getKey();
-            Double boostAmount = entry.getValue();
-            
-            applyBoostToEdTools(tool, boostType, boostAmount);
+    // perk_data when present, otherwise the legacy keys; null when the tool has no perk
+    private ToolPerkData readPerkData(PersistentDataContainer pdc) {
+        try {
+            return ToolPerkData.read(pdc, perkDataKey, legacyPerkKey, legacyLevelKey, boostKeys);
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Ignoring unreadable perk data on tool: " + e.getMessage());
+            return null;
         }
     }
 
-    private void applyBoostToEdTools(ItemStack tool, String boostType, double amount) {
-        // This method would interact with EdTools' boost system
-        // Since we don't have direct access to EdTools' boost modification methods,
-        // we'll store the boost information and apply it when the tool is used
-        
-        ItemMeta meta = tool.getItemMeta();
-        if (meta == null) return;
-        
-        PersistentDataContainer pdc = meta.getPersistentDataContainer();
-        String key = "boost_" + boostType.toLowerCase();
-        
-        // Store or add to existing boost
-        double currentBoost = pdc.getOrDefault(plugin.getKey(key), PersistentDataType.DOUBLE, 0.0);
-        pdc.set(plugin.getKey(key), PersistentDataType.DOUBLE, currentBoost + amount);
-        
-        tool.setItemMeta(meta);
+    private void removeLegacyKeys(PersistentDataContainer pdc) {
+        for (NamespacedKey key : legacyKeys) {
+            pdc.remove(key);
+        }
     }
 
     private void addPerkToLore(ItemMeta meta, Perk perk, int level) {
@@ -251,7 +242,8 @@ public class EdToolsIntegration {
         plugin.getLogger().info("Added perk lore: " + perkLore);
     }
 
-    public String getToolPerk(ItemStack tool) {
+    // Perk stored in the tool's NBT, or null; the tool id is only read, never generated here
+    public ToolPerkRecord getToolPerk(ItemStack tool) {
         if (!isEdTool(tool)) {
             return null;
         }
@@ -262,17 +254,20 @@ public class EdToolsIntegration {
         }
 
         PersistentDataContainer pdc = meta.getPersistentDataContainer();
-        String perkName = pdc.get(plugin.getKey("perk_name"), PersistentDataType.STRING);
-        Integer perkLevel = pdc.get(plugin.getKey("perk_level"), PersistentDataType.INTEGER);
+        ToolPerkData data = readPerkData(pdc);
 
-        if (perkName != null && perkLevel != null) {
-            return perkName + ":" + perkLevel;
+        if (data != null) {
+            String toolId = pdc.get(plugin.getKey("edtools_omnitool_uuid"), PersistentDataType.STRING);
+            if (toolId == null) {
+                toolId = pdc.get(plugin.getKey("tool_uuid"), PersistentDataType.STRING);
+            }
+            return new ToolPerkRecord(toolId, data.perkId(), data.level());
         }
 
         return null;
     }
 
-    public double getToolBoost(ItemStack tool, String boostType) {
+    public double getToolBoost(ItemStack tool, BoostType boostType) {
         if (!isEdTool(tool)) {
             return 0.0;
         }
@@ -282,10 +277,8 @@ public class EdToolsIntegration {
             return 0.0;
         }
 
-        PersistentDataContainer pdc = meta.getPersistentDataContainer();
-        String key = "boost_" + boostType.toLowerCase();
-        
-        return pdc.getOrDefault(plugin.getKey(key), PersistentDataType.DOUBLE, 0.0);
+        ToolPerkData data = readPerkData(meta.getPersistentDataContainer());
+        return data != null ? data.getBoost(boostType) : 0.0;
     }
 
     public void removeToolPerk(ItemStack tool) {
@@ -300,15 +293,9 @@ public class EdToolsIntegration {
 
         PersistentDataContainer pdc = meta.getPersistentDataContainer();
         
-        // Remove perk data
-        pdc.remove(plugin.getKey("perk_name"));
-        pdc.remove(plugin.getKey("perk_level"));
-
-        // Remove boost data
-        String[] boostTypes = {"coin", "orb", "money", "pass", "level", "enchant", "crops"};
-        for (String type : boostTypes) {
-            pdc.remove(plugin.getKey("boost_" + type));
-        }
+        // Remove perk data, in either format
+        pdc.remove(perkDataKey);
+        removeLegacyKeys(pdc);
 
         // Remove perk from lore
         if (meta.hasLore()) {
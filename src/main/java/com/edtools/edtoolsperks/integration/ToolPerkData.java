@@ -0,0 +1,133 @@
+package com.edtools.edtoolsperks.integration;
+
+import com.edtools.edtoolsperks.perks.BoostType;
+import com.edtools.edtoolsperks.perks.Perk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Everything this plugin keeps on a tool, stored under one PDC key (perk_data) through TYPE, so a
+// perk is applied with a single ItemMeta write. boosts is indexed by BoostType.ordinal().
+public record ToolPerkData(String perkId, int level, double[] boosts) {
+
+    // Written as the first byte; bump it when the layout changes and keep reading the old ones
+    public static final int SCHEMA_VERSION = 1;
+
+    public static final PersistentDataType<byte[], ToolPerkData> TYPE = new DataType();
+
+    // The boosts the perk grants at this level (none when the level does not exist)
+    public static ToolPerkData of(Perk perk, int level) {
+        double[] boosts = new double[BoostType.ALL.size()];
+        Perk.PerkLevel perkLevel = perk.getLevel(level);
+        if (perkLevel != null) {
+            for (BoostType type : perkLevel.getBoostTypes()) {
+                boosts[type.ordinal()] = perkLevel.getBoost(type);
+            }
+        }
+        return new ToolPerkData(perk.getId(), level, boosts);
+    }
+
+    // dataKey when present, otherwise the separate keys older builds wrote (boostKeys indexed by
+    // BoostType.ordinal()); null when the tool has no perk. IllegalArgumentException when dataKey
+    // holds a tag this version cannot read.
+    public static ToolPerkData read(PersistentDataContainer pdc, NamespacedKey dataKey, NamespacedKey legacyPerkKey,
+                                    NamespacedKey legacyLevelKey, NamespacedKey[] boostKeys) {
+        if (pdc.has(dataKey, TYPE)) {
+            return pdc.get(dataKey, TYPE);
+        }
+
+        String perkName = pdc.get(legacyPerkKey, PersistentDataType.STRING);
+        Integer perkLevel = pdc.get(legacyLevelKey, PersistentDataType.INTEGER);
+        if (perkName == null || perkLevel == null) {
+            return null;
+        }
+        double[] boosts = new double[BoostType.ALL.size()];
+        for (int i = 0; i < boostKeys.length; i++) {
+            boosts[i] = pdc.getOrDefault(boostKeys[i], PersistentDataType.DOUBLE, 0.0);
+        }
+        return new ToolPerkData(perkName, perkLevel, boosts);
+    }
+
+    public double getBoost(BoostType type) {
+        return boosts[type.ordinal()];
+    }
+
+    // Layout (version 1): version byte, perk id (modified UTF-8), level int, boost count byte,
+    // then name (modified UTF-8) + amount double per non-zero boost. Boosts are stored by name, not
+    // ordinal, so reordering BoostType does not change what old tools mean; unknown names are skipped.
+    private static final class DataType implements PersistentDataType<byte[], ToolPerkData> {
+
+        @Override
+        public Class<byte[]> getPrimitiveType() {
+            return byte[].class;
+        }
+
+        @Override
+        public Class<ToolPerkData> getComplexType() {
+            return ToolPerkData.class;
+        }
+
+        @Override
+        public byte[] toPrimitive(ToolPerkData data, PersistentDataAdapterContext context) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeByte(SCHEMA_VERSION);
+                out.writeUTF(data.perkId());
+                out.writeInt(data.level());
+
+                int count = 0;
+                for (double boost : data.boosts()) {
+                    if (boost != 0.0) {
+                        count++;
+                    }
+                }
+                out.writeByte(count);
+                for (BoostType type : BoostType.ALL) {
+                    double boost = data.getBoost(type);
+                    if (boost != 0.0) {
+                        out.writeUTF(type.getKey());
+                        out.writeDouble(boost);
+                    }
+                }
+            } catch (IOException e) {
+                // Cannot happen with a byte array
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        // IllegalArgumentException for a tag this version cannot read
+        @Override
+        public ToolPerkData fromPrimitive(byte[] primitive, PersistentDataAdapterContext context) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(primitive))) {
+                int version = in.readUnsignedByte();
+                if (version != SCHEMA_VERSION) {
+                    throw new IllegalArgumentException("Unsupported perk data version " + version);
+                }
+
+                String perkId = in.readUTF();
+                int level = in.readInt();
+                double[] boosts = new double[BoostType.ALL.size()];
+                int count = in.readUnsignedByte();
+                for (int i = 0; i < count; i++) {
+                    BoostType type = BoostType.fromName(in.readUTF());
+                    double boost = in.readDouble();
+                    if (type != null) {
+                        boosts[type.ordinal()] = boost;
+                    }
+                }
+                return new ToolPerkData(perkId, level, boosts);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Corrupt perk data: " + e.getMessage(), e);
+            }
+        }
+    }
+}
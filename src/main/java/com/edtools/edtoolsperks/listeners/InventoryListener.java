@@ -3,6 +3,9 @@ package com.edtools.edtoolsperks.listeners;
 import com.edtools.edtoolsperks.EdToolsPerks;
 import com.edtools.edtoolsperks.gui.RollAnimationManager;
 import com.edtools.edtoolsperks.perks.Perk;
+import com.edtools.edtoolsperks.perks.RollBatch;
+import com.edtools.edtoolsperks.perks.RollContext;
+import com.edtools.edtoolsperks.profile.PlayerProfile;
 import com.edtools.edtoolsperks.utils.MessageUtils;
 // No longer using Economy - using EdTools farm-coins currency
 import org.bukkit.entity.Player;
@@ -197,18 +200,14 @@ public class InventoryListener implements Listener {
             int rollCount = Integer.parseInt(action.substring(5));
             plugin.getLogger().info("Roll count: " + rollCount);
             
-            plugin.getDatabaseManager().getPlayerRolls(player.getUniqueId()).thenAccept(currentRolls -> {
-                plugin.getLogger().info("Player has " + currentRolls + " rolls, needs " + rollCount);
-                if (currentRolls < rollCount) {
-                    MessageUtils.send(player, plugin.getConfigManager().getMessage("roll.insufficient-rolls", 
-                        "required", rollCount, "current", currentRolls));
-                    return;
-                }
-
-                plugin.getLogger().info("Starting roll sequence");
-                // Start roll animation
-                startRollSequence(player, rollCount);
-            });
+            PlayerProfile profile = plugin.getProfileManager().getProfile(player.getUniqueId());
+            if (profile != null) {
+                checkRollsAndStart(player, rollCount, profile.getCurrentRolls());
+            } else {
+                // Profile not loaded yet, ask the database
+                plugin.getDatabaseManager().getPlayerRolls(player.getUniqueId()).thenAccept(currentRolls ->
+                    plugin.getServer().getScheduler().runTask(plugin, () -> checkRollsAndStart(player, rollCount, currentRolls)));
+            }
         } else if (action.startsWith("buy-rolls:")) {
             plugin.getLogger().info("Processing buy-rolls action: " + action);
             String[] parts = action.substring(10).split(":");
@@ -229,6 +228,19 @@ public class InventoryListener implements Listener {
         }
     }
 
+    private void checkRollsAndStart(Player player, int rollCount, int currentRolls) {
+        plugin.getLogger().info("Player has " + currentRolls + " rolls, needs " + rollCount);
+        if (currentRolls < rollCount) {
+            MessageUtils.send(player, plugin.getConfigManager().getMessage("roll.insufficient-rolls",
+                "required", rollCount, "current", currentRolls));
+            return;
+        }
+
+        plugin.getLogger().info("Starting roll sequence");
+        // Start roll animation
+        startRollSequence(player, rollCount);
+    }
+
     private String getActionForSlot(String guiId, int slot, String clickType) {
         String itemKey = findItemKeyBySlot(guiId, slot);
         plugin.getLogger().info("Looking for item key: " + itemKey + " in GUI: " + guiId + " for slot: " + slot);
@@ -246,7 +258,7 @@ public class InventoryListener implements Listener {
 
     private String findItemKeyBySlot(String guiId, int slot) {
         // This is a simplified implementation - you might want to cache this for performance
-        var config = plugin.getGuiManager().guiConfigurations.get(guiId);
+        var config = plugin.getGuiManager().getGUIConfiguration(guiId);
         if (config != null) {
             for (var entry : config.getItems().entrySet()) {
                 if (entry.getValue().getSlots().contains(slot)) {
@@ -281,148 +293,126 @@ public class InventoryListener implements Listener {
 
     private void startRollSequence(Player player, int rollCount) {
         plugin.getLogger().info("Starting roll sequence for " + player.getName() + " with " + rollCount + " rolls");
-        
-        // Deduct rolls first
-        plugin.getDatabaseManager().addPlayerRolls(player.getUniqueId(), -rollCount);
-        plugin.getDatabaseManager().incrementTotalRolls(player.getUniqueId(), rollCount);
 
-        // Check if pity should trigger
-        plugin.getDatabaseManager().getTotalRolls(player.getUniqueId()).thenAccept(totalRolls -> {
-            plugin.getDatabaseManager().getPityCounter(player.getUniqueId()).thenAccept(pityCounter -> {
-                try {
-                    boolean guaranteePurple = (pityCounter + rollCount) >= 
-                        plugin.getConfigManager().getConfig().getInt("rolls.guaranteed-purple-at", 500);
-
-                    plugin.getLogger().info("Pity check - Total: " + totalRolls + ", Counter: " + pityCounter + ", Guarantee: " + guaranteePurple);
-
-                    if (guaranteePurple) {
-                        plugin.getDatabaseManager().setPityCounter(player.getUniqueId(), 0);
-                    }
-
-                    // Roll the perks
-                    for (int i = 0; i < rollCount; i++) {
-                        try {
-                            boolean isLastRoll = (i == rollCount - 1);
-                            boolean useGuarantee = guaranteePurple && isLastRoll;
-                            
-                            plugin.getLogger().info("Rolling perk " + (i+1) + "/" + rollCount + ", Last roll: " + isLastRoll);
-                            
-                            Perk rolledPerk = plugin.getPerkManager().rollRandomPerk(useGuarantee);
-                            if (rolledPerk == null) {
-                                plugin.getLogger().severe("ERROR: rollRandomPerk returned null!");
-                                return;
-                            }
-                            
-                            int perkLevel = plugin.getPerkManager().rollPerkLevel(rolledPerk);
-                            plugin.getLogger().info("Rolled: " + rolledPerk.getDisplayName() + " Level " + perkLevel);
-
-                            if (isLastRoll) {
-                                // Show animation for last roll - must run on main thread
-                                plugin.getLogger().info("Starting animation for last roll");
-                                try {
-                                    // Schedule animation on main thread
-                                    plugin.getServer().getScheduler().runTask(plugin, () -> {
-                                        try {
-                                            RollAnimationManager animationManager = new RollAnimationManager(plugin, player, rolledPerk, perkLevel, useGuarantee);
-                                            animationManager.startAnimation();
-                                        } catch (Exception e) {
-                                            plugin.getLogger().severe("ERROR starting animation: " + e.getMessage());
-                                            e.printStackTrace();
-                                            // Fallback: apply perk without animation
-                                            applyPerkToTool(player, rolledPerk, perkLevel, useGuarantee);
-                                        }
-                                    });
-                                } catch (Exception e) {
-                                    plugin.getLogger().severe("ERROR scheduling animation: " + e.getMessage());
-                                    e.printStackTrace();
-                                    // Fallback: apply perk without animation
-                                    applyPerkToTool(player, rolledPerk, perkLevel, useGuarantee);
-                                }
-                            } else {
-                                // Apply perk immediately for non-animated rolls
-                                plugin.getLogger().info("Applying perk immediately (not last roll)");
-                                applyPerkToTool(player, rolledPerk, perkLevel, useGuarantee);
-                            }
-                        } catch (Exception e) {
-                            plugin.getLogger().severe("ERROR in roll loop iteration " + (i+1) + ": " + e.getMessage());
-                            e.printStackTrace();
-                        }
-                    }
-                } catch (Exception e) {
-                    plugin.getLogger().severe("ERROR in startRollSequence: " + e.getMessage());
-                    e.printStackTrace();
+        // Refuse before paying when no perk exists for the held tool's type
+        String toolType = plugin.getEdToolsIntegration().getToolType(player.getInventory().getItemInMainHand());
+        if (plugin.getPerkManager().getDropTable(toolType).isEmpty()) {
+            MessageUtils.send(player, plugin.getConfigManager().getMessage("roll.no-perks-for-tool", "tool", toolType));
+            return;
+        }
+        
+        // Deduct and count the rolls in a single transaction; pity is applied while drawing
+        plugin.getProfileManager().settleRolls(player.getUniqueId(), rollCount).thenAccept(settlement -> {
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (!settlement.success()) {
+                    // Another click already spent these rolls
+                    MessageUtils.send(player, plugin.getConfigManager().getMessage("roll.insufficient-rolls",
+                        "required", rollCount, "current", settlement.currentRolls()));
+                    return;
+                }
+                
+                PlayerProfile profile = plugin.getProfileManager().getProfile(player.getUniqueId());
+                if (profile != null) {
+                    rollPerks(player, rollCount, profile.getPityState());
+                } else {
+                    // Profile not loaded yet, continue from the stored pity counters
+                    plugin.getDatabaseManager().getPityState(player.getUniqueId()).thenAccept(pityState ->
+                        plugin.getServer().getScheduler().runTask(plugin, () -> rollPerks(player, rollCount, pityState)));
                 }
-            }).exceptionally(ex -> {
-                plugin.getLogger().severe("ERROR getting pity counter: " + ex.getMessage());
-                ex.printStackTrace();
-                return null;
             });
         }).exceptionally(ex -> {
-            plugin.getLogger().severe("ERROR getting total rolls: " + ex.getMessage());
+            plugin.getLogger().severe("ERROR settling rolls: " + ex.getMessage());
             ex.printStackTrace();
             return null;
         });
     }
 
-    private void applyPerkToTool(Player player, Perk perk, int level, boolean wasGuaranteed) {
+    private void rollPerks(Player player, int rollCount, long pityState) {
         try {
-            plugin.getLogger().info("Applying perk to tool: " + perk.getDisplayName() + " Level " + level);
-            
+            plugin.getLogger().info("Pity state before rolling: " + Long.toHexString(pityState));
+
+            // Only perks for the held tool's type can drop
             ItemStack tool = player.getInventory().getItemInMainHand();
-            if (tool == null) {
-                plugin.getLogger().severe("ERROR: Player has no item in main hand!");
+            String toolType = plugin.getEdToolsIntegration().getToolType(tool);
+
+            RollBatch batch = plugin.getPerkManager().rollBatch(rollCount, new RollContext(toolType, pityState));
+            if (batch == null) {
+                // The perks for this tool went away after the check (reload); the rolls were already paid
+                plugin.getProfileManager().refundRolls(player.getUniqueId(), rollCount);
+                MessageUtils.send(player, plugin.getConfigManager().getMessage("roll.no-perks-for-tool", "tool", toolType));
                 return;
             }
-            
-            plugin.getLogger().info("Tool in hand: " + tool.getType());
-            
-            // Apply perk via EdTools integration and NBT
+            plugin.getProfileManager().setPityState(player.getUniqueId(), batch.getPityState());
+
+            // The whole click is saved as one unit: the tool keeps the last perk, every roll goes to history
+            String toolUUID = plugin.getEdToolsIntegration().getToolUUID(tool);
+            if (toolUUID == null) {
+                plugin.getLogger().warning("Tool UUID is null - rolls are recorded but the perk is not saved to the tool");
+            }
+            plugin.getDatabaseManager().saveRollBatch(toolUUID, player.getUniqueId(), batch);
+
+            // Earlier rolls are only announced; each would be replaced by the next one anyway
+            int last = batch.getLastIndex();
+            for (int i = 0; i < last; i++) {
+                sendRollMessage(player, batch.getPerk(i), batch.getLevel(i), batch.isGuaranteed(i));
+            }
+
+            Perk rolledPerk = batch.getPerk(last);
+            int perkLevel = batch.getLevel(last);
+            boolean guaranteed = batch.isGuaranteed(last);
+            plugin.getLogger().info("Rolled " + rollCount + " perks for " + player.getName() + ", result: " + rolledPerk.getId() + ":" + perkLevel);
+
+            // Show animation for last roll (we are already on the main thread)
             try {
-                plugin.getEdToolsIntegration().applyPerkToTool(tool, perk, level);
-                plugin.getLogger().info("Perk applied to tool successfully");
+                RollAnimationManager animationManager = new RollAnimationManager(plugin, player, rolledPerk, perkLevel, guaranteed);
+                animationManager.startAnimation();
             } catch (Exception e) {
-                plugin.getLogger().severe("ERROR applying perk to tool: " + e.getMessage());
+                plugin.getLogger().severe("ERROR starting animation: " + e.getMessage());
                 e.printStackTrace();
+                // Fallback: apply perk without animation
+                applyPerkToTool(player, rolledPerk, perkLevel, guaranteed);
             }
-            
-            // Save to database IMMEDIATELY and wait for completion
-            String toolUUID = plugin.getEdToolsIntegration().getToolUUID(tool);
-            plugin.getLogger().info("Tool UUID: " + toolUUID);
-            
-            if (toolUUID != null) {
-                try {
-                    // Save synchronously to ensure database is updated before continuing
-                    plugin.getDatabaseManager().savePerkToTool(toolUUID, player.getUniqueId(), perk.getId(), level).join();
-                    plugin.getDatabaseManager().saveRollHistory(player.getUniqueId(), perk.getId(), level, perk.getCategory(), wasGuaranteed);
-                    plugin.getLogger().info("Perk saved to database successfully (synchronized)");
-                } catch (Exception e) {
-                    plugin.getLogger().severe("ERROR saving perk to database: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            } else {
-                plugin.getLogger().warning("Tool UUID is null - not saving to database");
-            }
+        } catch (Exception e) {
+            plugin.getLogger().severe("ERROR in startRollSequence: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
-            // Send message
+    // Puts the perk on the held tool; the database side was already saved with the roll batch
+    private void applyPerkToTool(Player player, Perk perk, int level, boolean wasGuaranteed) {
+        try {
+            ItemStack tool = player.getInventory().getItemInMainHand();
+            
+            // Apply perk via EdTools integration and NBT
             try {
-                String message = wasGuaranteed ? "roll.guaranteed-perk" : "roll.perk-applied";
-                String categoryColor = plugin.getPerkManager().getCategory(perk.getCategory()).getColor();
-                
-                plugin.getLogger().info("Sending message to player: " + message);
-                MessageUtils.send(player, plugin.getConfigManager().getMessage(message,
-                    "category_color", categoryColor,
-                    "perk_name", perk.getDisplayName(),
-                    "level", level));
+                plugin.getEdToolsIntegration().applyPerkToTool(tool, perk, level);
             } catch (Exception e) {
-                plugin.getLogger().severe("ERROR sending message to player: " + e.getMessage());
+                plugin.getLogger().severe("ERROR applying perk to tool: " + e.getMessage());
                 e.printStackTrace();
             }
+
+            sendRollMessage(player, perk, level, wasGuaranteed);
         } catch (Exception e) {
             plugin.getLogger().severe("ERROR in applyPerkToTool: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    private void sendRollMessage(Player player, Perk perk, int level, boolean wasGuaranteed) {
+        try {
+            String message = wasGuaranteed ? "roll.guaranteed-perk" : "roll.perk-applied";
+            String categoryColor = plugin.getPerkManager().getCategory(perk.getCategory()).getColor();
+            
+            MessageUtils.send(player, plugin.getConfigManager().getMessage(message,
+                "category_color", categoryColor,
+                "perk_name", perk.getDisplayName(),
+                "level", level));
+        } catch (Exception e) {
+            plugin.getLogger().severe("ERROR sending message to player: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     private void buyRolls(Player player, int amount, double cost) {
         plugin.getLogger().info("Player " + player.getName() + " attempting to buy " + amount + " rolls for " + cost + " farm-coins");
         
@@ -445,12 +435,7 @@ public class InventoryListener implements Listener {
         }
         
         plugin.getLogger().info("Farm-coins removed successfully, adding " + amount + " rolls to player");
-        plugin.getDatabaseManager().addPlayerRolls(player.getUniqueId(), amount);
-        
-        // Verify the rolls were added
-        plugin.getDatabaseManager().getPlayerRolls(player.getUniqueId()).thenAccept(newRollCount -> {
-            plugin.getLogger().info("Player now has " + newRollCount + " rolls after purchase");
-        });
+        plugin.getProfileManager().addRolls(player.getUniqueId(), amount);
         
         MessageUtils.send(player, plugin.getConfigManager().getMessage("roll.rolls-purchased",
             "amount", amount, "cost", (int)cost));
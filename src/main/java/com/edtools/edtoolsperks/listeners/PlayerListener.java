@@ -1,11 +1,13 @@
 package com.edtools.edtoolsperks.listeners;
 
 import com.edtools.edtoolsperks.EdToolsPerks;
+import com.edtools.edtoolsperks.database.ToolPerkRecord;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerItemHeldEvent;
 import org.bukkit.event.player.PlayerSwapHandItemsEvent;
@@ -26,13 +28,22 @@ public class PlayerListener implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         
-        // Create player in database if not exists
-        plugin.getDatabaseManager().createPlayer(player.getUniqueId(), player.getName());
+        // Create player in database if not exists and cache their profile
+        plugin.getProfileManager().loadProfile(player);
         
-        // Give some initial rolls for new players
-        if (!player.hasPlayedBefore()) {
-            plugin.getDatabaseManager().setPlayerRolls(player.getUniqueId(), 5);
-        }
+        // Warm the perk lookups for all of the player's tools
+        plugin.getDatabaseManager().preloadToolPerks(player.getUniqueId()).thenRun(() -> {
+            // Quit before the preload finished
+            if (!player.isOnline()) {
+                plugin.getDatabaseManager().releaseToolPerks(player.getUniqueId());
+            }
+        });
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getProfileManager().unload(event.getPlayer().getUniqueId());
+        plugin.getDatabaseManager().releaseToolPerks(event.getPlayer().getUniqueId());
     }
 
     @EventHandler
@@ -141,7 +152,7 @@ public class PlayerListener implements Listener {
         plugin.getLogger().info("Player " + player.getName() + " switched to tool: " + tool.getType());
         
         // First, check if the tool already has perk data in NBT
-        String existingPerkFromNBT = plugin.getEdToolsIntegration().getToolPerk(tool);
+        ToolPerkRecord existingPerkFromNBT = plugin.getEdToolsIntegration().getToolPerk(tool);
         plugin.getLogger().info("Existing perk in NBT: " + (existingPerkFromNBT != null ? existingPerkFromNBT : "NONE"));
         
         // Check if the tool has perk lore
@@ -201,71 +212,45 @@ public class PlayerListener implements Listener {
                 plugin.getLogger().info("Found saved perk data: " + perkData);
                 
                 // Check if NBT and database are synchronized
-                if (existingPerkFromNBT != null && !existingPerkFromNBT.equals(perkData)) {
+                if (existingPerkFromNBT != null && !existingPerkFromNBT.samePerk(perkData)) {
                     plugin.getLogger().warning("DESYNC DETECTED!");
                     plugin.getLogger().warning("NBT has: " + existingPerkFromNBT);
                     plugin.getLogger().warning("Database has: " + perkData);
                     plugin.getLogger().info("Updating database to match NBT (NBT takes priority)");
                     
-                    // Parse NBT perk to update database
-                    String[] nbtParts = existingPerkFromNBT.split(":");
-                    if (nbtParts.length == 2) {
-                        try {
-                            String nbtPerkId = nbtParts[0];
-                            int nbtLevel = Integer.parseInt(nbtParts[1]);
-                            // Update database to match NBT (wait for completion)
-                            plugin.getDatabaseManager().savePerkToTool(toolUUID, player.getUniqueId(), nbtPerkId, nbtLevel).join();
-                            plugin.getLogger().info("Database updated to match NBT");
-                        } catch (NumberFormatException e) {
-                            plugin.getLogger().severe("Invalid NBT perk format: " + existingPerkFromNBT);
-                        } catch (Exception e) {
-                            plugin.getLogger().severe("Failed to update database to match NBT: " + e.getMessage());
-                            e.printStackTrace();
-                        }
-                    }
+                    // Cached lookups complete on the main thread, so don't wait for the write here
+                    plugin.getDatabaseManager().savePerkToTool(toolUUID, player.getUniqueId(),
+                        existingPerkFromNBT.perkId(), existingPerkFromNBT.level()).thenRun(() ->
+                        plugin.getLogger().info("Database updated to match NBT"));
                     plugin.getLogger().info("=== PERK DETECTION END ===");
                     return;
                 }
                 
-                // Parse perk data (format: "perkId:level")
-                String[] parts = perkData.split(":");
-                if (parts.length == 2) {
-                    String perkId = parts[0];
-                    int level;
-                    
-                    try {
-                        level = Integer.parseInt(parts[1]);
-                    } catch (NumberFormatException e) {
-                        plugin.getLogger().severe("Invalid perk level in database: " + parts[1]);
-                        return;
-                    }
-                    
-                    // Check if the tool already has this perk applied correctly
-                    if (existingPerkFromNBT != null && existingPerkFromNBT.equals(perkData)) {
-                        plugin.getLogger().info("Tool already has the correct perk applied: " + existingPerkFromNBT);
-                        plugin.getLogger().info("No need to reapply perk");
-                        plugin.getLogger().info("=== PERK DETECTION END ===");
-                        return;
-                    }
+                String perkId = perkData.perkId();
+                int level = perkData.level();
+                
+                // Check if the tool already has this perk applied correctly
+                if (existingPerkFromNBT != null) {
+                    plugin.getLogger().info("Tool already has the correct perk applied: " + existingPerkFromNBT);
+                    plugin.getLogger().info("No need to reapply perk");
+                    plugin.getLogger().info("=== PERK DETECTION END ===");
+                    return;
+                }
+                
+                // Get the perk object
+                var perk = plugin.getPerkManager().getPerk(perkId);
+                if (perk != null) {
+                    plugin.getLogger().info("Restoring perk: " + perk.getDisplayName() + " Level " + level);
                     
-                    // Get the perk object
-                    var perk = plugin.getPerkManager().getPerk(perkId);
-                    if (perk != null) {
-                        plugin.getLogger().info("Restoring perk: " + perk.getDisplayName() + " Level " + level);
-                        
-                        // Apply the perk to the tool (this will restore NBT)
-                        plugin.getServer().getScheduler().runTask(plugin, () -> {
-                            plugin.getLogger().info("Applying perk to tool: " + perk.getDisplayName() + " Level " + level);
-                            plugin.getEdToolsIntegration().applyPerkToTool(tool, perk, level);
-                            plugin.getLogger().info("Perk application completed");
-                            plugin.getLogger().info("=== PERK DETECTION END ===");
-                        });
-                    } else {
-                        plugin.getLogger().warning("Perk not found: " + perkId);
+                    // Apply the perk to the tool (this will restore NBT)
+                    plugin.getServer().getScheduler().runTask(plugin, () -> {
+                        plugin.getLogger().info("Applying perk to tool: " + perk.getDisplayName() + " Level " + level);
+                        plugin.getEdToolsIntegration().applyPerkToTool(tool, perk, level);
+                        plugin.getLogger().info("Perk application completed");
                         plugin.getLogger().info("=== PERK DETECTION END ===");
-                    }
+                    });
                 } else {
-                    plugin.getLogger().warning("Invalid perk data format: " + perkData);
+                    plugin.getLogger().warning("Perk not found: " + perkId);
                     plugin.getLogger().info("=== PERK DETECTION END ===");
                 }
             } else {
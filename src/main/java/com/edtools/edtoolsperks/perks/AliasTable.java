@@ -0,0 +1,105 @@
+package com.edtools.edtoolsperks.perks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.random.RandomGenerator;
+
+// Walker/Vose alias table: built once in O(n), then every draw is one random int plus one
+// random double, with no allocation. Items are picked with probability weight / total weight;
+// negative weights count as 0 and if nothing has weight every item is equally likely.
+public final class AliasTable<T> {
+
+    private final Object[] items;
+    private final double[] probability;
+    private final int[] alias;
+
+    public AliasTable(List<T> items, ToDoubleFunction<T> weight) {
+        int n = items.size();
+        this.items = items.toArray();
+        this.probability = new double[n];
+        this.alias = new int[n];
+        if (n == 0) {
+            return;
+        }
+
+        double[] scaled = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = Math.max(0.0, weight.applyAsDouble(items.get(i)));
+            total += scaled[i];
+        }
+        if (total <= 0) {
+            // Same as the old fallback: uniform pick
+            Arrays.fill(probability, 1.0);
+            for (int i = 0; i < n; i++) {
+                alias[i] = i;
+            }
+            return;
+        }
+
+        // Scale so the average column is exactly 1
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = scaled[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Whatever is left is 1 up to rounding error
+        while (largeCount > 0) {
+            int index = large[--largeCount];
+            probability[index] = 1.0;
+            alias[index] = index;
+        }
+        while (smallCount > 0) {
+            int index = small[--smallCount];
+            probability[index] = 1.0;
+            alias[index] = index;
+        }
+    }
+
+    // Returns null when the table is empty
+    @SuppressWarnings("unchecked")
+    public T sample(RandomGenerator random) {
+        int index = sampleIndex(random);
+        return index < 0 ? null : (T) items[index];
+    }
+
+    // Position in the list the table was built from; -1 when the table is empty
+    public int sampleIndex(RandomGenerator random) {
+        if (items.length == 0) {
+            return -1;
+        }
+        int column = random.nextInt(items.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    public boolean isEmpty() {
+        return items.length == 0;
+    }
+}
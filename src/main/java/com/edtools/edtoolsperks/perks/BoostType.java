@@ -0,0 +1,48 @@
+package com.edtools.edtoolsperks.perks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Every boost a perk level can grant. The lower-case name is what perks.yml uses in boost-type
+// and what a tool's perk_data stores the amount under. Add new boosts here and nowhere else.
+public enum BoostType {
+    COIN,
+    ORB,
+    MONEY,
+    PASS,
+    LEVEL,
+    ENCHANT,
+    CROPS;
+
+    public static final List<BoostType> ALL = List.of(values());
+
+    private static final Map<String, BoostType> BY_NAME = new HashMap<>();
+
+    static {
+        for (BoostType type : ALL) {
+            BY_NAME.put(type.key, type);
+        }
+    }
+
+    private final String key = name().toLowerCase(Locale.ROOT);
+
+    public String getKey() {
+        return key;
+    }
+
+    // Separate NBT key the boost amount was stored under before perk_data; still read from old tools
+    public String getDataKey() {
+        return "boost_" + key;
+    }
+
+    // null for unknown names
+    public static BoostType fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        BoostType type = BY_NAME.get(name);
+        return type != null ? type : BY_NAME.get(name.trim().toLowerCase(Locale.ROOT));
+    }
+}
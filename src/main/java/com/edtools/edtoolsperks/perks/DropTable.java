@@ -0,0 +1,79 @@
+package com.edtools.edtoolsperks.perks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+// Immutable set of perks that can drop for one tool type (or for every tool), with the
+// weighted sampler and per-category pools precomputed. Built by PerkManager.loadPerks().
+// Perks are addressed by their index in getPerks(), which is what RollBatch stores.
+public final class DropTable {
+
+    // Category of the default pity tier (rolls.guaranteed-purple-at)
+    public static final String GUARANTEED_CATEGORY = "morada";
+
+    private static final int[] NONE = new int[0];
+
+    // What a tool type without perks rolls from: nothing
+    public static final DropTable EMPTY = new DropTable(List.of());
+
+    private final List<Perk> perks;
+    private final AliasTable<Perk> sampler;
+    private final Map<String, int[]> byCategory;
+
+    public DropTable(List<Perk> perks) {
+        this.perks = Collections.unmodifiableList(new ArrayList<>(perks));
+        this.sampler = new AliasTable<>(this.perks, Perk::getChance);
+
+        Map<String, List<Integer>> grouped = new HashMap<>();
+        for (int i = 0; i < this.perks.size(); i++) {
+            grouped.computeIfAbsent(this.perks.get(i).getCategory(), key -> new ArrayList<>()).add(i);
+        }
+        Map<String, int[]> arrays = new HashMap<>();
+        grouped.forEach((category, list) -> arrays.put(category, list.stream().mapToInt(Integer::intValue).toArray()));
+        this.byCategory = Collections.unmodifiableMap(arrays);
+    }
+
+    // Weighted by chance; null when the table is empty
+    public Perk roll(RandomGenerator random) {
+        int index = rollIndex(random);
+        return index < 0 ? null : perks.get(index);
+    }
+
+    public int rollIndex(RandomGenerator random) {
+        return sampler.sampleIndex(random);
+    }
+
+    // A roll forced into a category by pity picks uniformly among its perks, falling back to a
+    // normal weighted roll when this table has none (or forcedCategory is null)
+    public int rollIndex(RandomGenerator random, String forcedCategory) {
+        int index = forcedCategory != null ? rollIndexFromCategory(forcedCategory, random) : -1;
+        return index >= 0 ? index : rollIndex(random);
+    }
+
+    // Uniform pick inside one category; null when the category has no perks here
+    public Perk rollFromCategory(String category, RandomGenerator random) {
+        int index = rollIndexFromCategory(category, random);
+        return index < 0 ? null : perks.get(index);
+    }
+
+    public int rollIndexFromCategory(String category, RandomGenerator random) {
+        int[] pool = byCategory.getOrDefault(category, NONE);
+        return pool.length == 0 ? -1 : pool[random.nextInt(pool.length)];
+    }
+
+    public Perk getPerk(int index) {
+        return perks.get(index);
+    }
+
+    public List<Perk> getPerks() {
+        return perks;
+    }
+
+    public boolean isEmpty() {
+        return perks.isEmpty();
+    }
+}
@@ -1,10 +1,12 @@
 package com.edtools.edtoolsperks.perks;
 
 import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.random.RandomGenerator;
 
 public class Perk {
     
@@ -17,6 +19,12 @@ public class Perk {
     private final Map<Integer, PerkLevel> levels;
     private final Material displayMaterial;
     private final List<String> lore;
+    // Level selection compiled from the level weights: sorted level numbers and running weight totals
+    private final int[] levelNumbers;
+    private final double[] cumulativeLevelWeights;
+    private final int maxLevel;
+    // Finished GUI item, built once by PerkManager before the registry is published; never handed out directly
+    private ItemStack displayItem;
 
     public Perk(String id, String displayName, String description, String category, 
                 String tool, double chance, Map<Integer, PerkLevel> levels,
@@ -30,6 +38,21 @@ public class Perk {
         this.levels = levels;
         this.displayMaterial = displayMaterial;
         this.lore = lore;
+
+        this.levelNumbers = levels.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        this.cumulativeLevelWeights = new double[levelNumbers.length];
+        double total = 0;
+        for (int i = 0; i < levelNumbers.length; i++) {
+            total += Math.max(0.0, levels.get(levelNumbers[i]).getWeight());
+            cumulativeLevelWeights[i] = total;
+        }
+        // No usable weights: every level is equally likely, as before
+        if (total <= 0) {
+            for (int i = 0; i < levelNumbers.length; i++) {
+                cumulativeLevelWeights[i] = i + 1;
+            }
+        }
+        this.maxLevel = levelNumbers.length > 0 ? levelNumbers[levelNumbers.length - 1] : 1;
     }
 
     public String getId() {
@@ -65,7 +88,29 @@ public class Perk {
     }
 
     public int getMaxLevel() {
-        return levels.keySet().stream().mapToInt(Integer::intValue).max().orElse(1);
+        return maxLevel;
+    }
+
+    // Picks a level by weight with one random double and a binary search; 1 when the perk has no levels
+    public int rollLevel(RandomGenerator random) {
+        int count = levelNumbers.length;
+        if (count == 0) {
+            return 1;
+        }
+
+        double target = random.nextDouble() * cumulativeLevelWeights[count - 1];
+        // First level whose running total is above the target
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeLevelWeights[mid] > target) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return levelNumbers[low];
     }
 
     public Material getDisplayMaterial() {
@@ -76,38 +121,65 @@ public class Perk {
         return lore;
     }
 
+    void setDisplayItem(ItemStack displayItem) {
+        this.displayItem = displayItem;
+    }
+
+    boolean hasDisplayItem() {
+        return displayItem != null;
+    }
+
+    // A copy of the prebuilt display item, or null when none was built (headless loading)
+    public ItemStack createDisplayItem() {
+        return displayItem != null ? displayItem.clone() : null;
+    }
+
     public static class PerkLevel {
         private final String boostType;
         private final String boostAmount;
-        private final Map<String, Double> parsedBoosts;
+        // Indexed by BoostType.ordinal(); types lists the configured ones in config order
+        private final double[] boosts = new double[BoostType.ALL.size()];
+        private final List<BoostType> types;
+        private final double weight;
 
         public PerkLevel(String boostType, String boostAmount) {
+            this(boostType, boostAmount, 1.0);
+        }
+
+        public PerkLevel(String boostType, String boostAmount, double weight) {
             this.boostType = boostType;
             this.boostAmount = boostAmount;
-            this.parsedBoosts = parseBoosts(boostType, boostAmount);
+            this.types = parseBoosts(boostType, boostAmount);
+            this.weight = weight;
         }
 
-        private Map<String, Double> parseBoosts(String types, String amounts) {
-            Map<String, Double> boosts = new HashMap<>();
+        // Unknown boost names and invalid amounts are skipped
+        private List<BoostType> parseBoosts(String types, String amounts) {
+            List<BoostType> parsed = new ArrayList<>();
             
             if (types == null || amounts == null) {
-                return boosts;
+                return List.of();
             }
             
             String[] typeArray = types.split(",");
             String[] amountArray = amounts.split(",");
             
             for (int i = 0; i < typeArray.length && i < amountArray.length; i++) {
-                String type = typeArray[i].trim();
+                BoostType type = BoostType.fromName(typeArray[i]);
+                if (type == null) {
+                    continue;
+                }
                 try {
-                    double amount = Double.parseDouble(amountArray[i].trim());
-                    boosts.put(type, amount);
+                    boosts[type.ordinal()] = Double.parseDouble(amountArray[i].trim());
+                    if (!parsed.contains(type)) {
+                        parsed.add(type);
+                    }
                 } catch (NumberFormatException e) {
                     // Skip invalid amounts
                 }
             }
             
-            return boosts;
+            return List.copyOf(parsed);
         }
 
         public String getBoostType() {
@@ -118,16 +190,32 @@ public class Perk {
             return boostAmount;
         }
 
-        public Map<String, Double> getParsedBoosts() {
-            return parsedBoosts;
+        // Boosts this level grants, in config order
+        public List<BoostType> getBoostTypes() {
+            return types;
+        }
+
+        // Relative chance of rolling this level (default 1)
+        public double getWeight() {
+            return weight;
+        }
+
+        public double getBoost(BoostType type) {
+            return boosts[type.ordinal()];
+        }
+
+        public boolean hasBoost(BoostType type) {
+            return types.contains(type);
         }
 
         public double getBoostForType(String type) {
-            return parsedBoosts.getOrDefault(type.toLowerCase(), 0.0);
+            BoostType boost = BoostType.fromName(type);
+            return boost != null ? boosts[boost.ordinal()] : 0.0;
         }
 
         public boolean hasBoostType(String type) {
-            return parsedBoosts.containsKey(type.toLowerCase());
+            BoostType boost = BoostType.fromName(type);
+            return boost != null && types.contains(boost);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,240 @@
+package com.edtools.edtoolsperks.perks;
+
+import com.edtools.edtoolsperks.utils.ConfigUtils;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Parses perks.yml (and the pity tiers in config.yml) into a PerkRegistry. Needs nothing from a running server, so the same code
+// serves PerkManager and the headless RollSimulator. Problems are reported through console.
+public class PerkLoader {
+
+    private final FileConfiguration mainConfig;
+    private final Consumer<String> console;
+    // Perks the last load took over from the previous registry
+    private int reused;
+
+    // mainConfig supplies perk-defaults; console receives &-coloured messages
+    public PerkLoader(FileConfiguration mainConfig, Consumer<String> console) {
+        this.mainConfig = mainConfig;
+        this.console = console;
+    }
+
+    // Returns null when perks.yml is missing or has no perks section
+    public PerkRegistry load(FileConfiguration perksConfig) {
+        return load(perksConfig, null);
+    }
+
+    // Same, but a perk whose section and category section are unchanged since previous was loaded is
+    // taken over from previous as is (display item included) instead of being parsed again. Only valid
+    // while config.yml (perk-defaults) is the one previous was built with; /etp reload passes no previous.
+    public PerkRegistry load(FileConfiguration perksConfig, PerkRegistry previous) {
+        reused = 0;
+        if (perksConfig == null) {
+            console.accept("&cPerks configuration not found!");
+            return null;
+        }
+
+        // Load categories first
+        Map<String, PerkCategoryConfig> categories = loadCategories(perksConfig);
+
+        // Load perks
+        ConfigurationSection perksSection = perksConfig.getConfigurationSection("perks");
+        if (perksSection == null) {
+            console.accept("&cNo perks section found in perks.yml!");
+            return null;
+        }
+
+        ConfigurationSection categoriesSection = perksConfig.getConfigurationSection("categories");
+        String defaultCategory = mainConfig.getString("perk-defaults.category", "verde");
+        Map<String, Perk> perks = new LinkedHashMap<>();
+        Map<String, PerkRegistry.Source> sources = new HashMap<>();
+        for (String perkId : perksSection.getKeys(false)) {
+            ConfigurationSection perkSection = perksSection.getConfigurationSection(perkId);
+            if (perkSection != null) {
+                // The lore embeds the category's name and colour, so an edited category counts as an edited perk
+                String category = perkSection.getString("category", defaultCategory);
+                String shownCategory = categories.containsKey(category) ? category : "verde";
+                PerkRegistry.Source source = new PerkRegistry.Source(ConfigUtils.fingerprint(perkSection), ConfigUtils.fingerprint(
+                        categoriesSection != null ? categoriesSection.getConfigurationSection(shownCategory) : null));
+
+                Perk perk = previous != null && source.equals(previous.getSource(perkId)) ? previous.getPerk(perkId) : null;
+                if (perk != null) {
+                    reused++;
+                } else {
+                    perk = loadPerk(perkId, perkSection, categories);
+                }
+                if (perk != null) {
+                    perks.put(perkId, perk);
+                    sources.put(perkId, source);
+                }
+            }
+        }
+
+        PityEngine pity = PityEngine.fromConfig(mainConfig.getConfigurationSection("rolls"), console);
+        for (PityEngine.Tier tier : pity.getTiers()) {
+            if (!categories.containsKey(tier.category())) {
+                console.accept("&cPity tier '" + tier.category() + "' does not match any category");
+            }
+        }
+
+        return new PerkRegistry(perks, categories, pity, sources);
+    }
+
+    public int getReusedCount() {
+        return reused;
+    }
+
+    private Map<String, PerkCategoryConfig> loadCategories(FileConfiguration config) {
+        Map<String, PerkCategoryConfig> categories = new LinkedHashMap<>();
+        ConfigurationSection categoriesSection = config.getConfigurationSection("categories");
+        if (categoriesSection == null) {
+            console.accept("&cNo categories section found in perks.yml! Using defaults.");
+            loadDefaultCategories(categories);
+            return categories;
+        }
+
+        for (String categoryId : categoriesSection.getKeys(false)) {
+            ConfigurationSection categorySection = categoriesSection.getConfigurationSection(categoryId);
+            if (categorySection != null) {
+                String displayName = categorySection.getString("display-name", categoryId);
+                String color = categorySection.getString("color", "&f");
+                String glassColorStr = categorySection.getString("glass-color", "WHITE_STAINED_GLASS_PANE");
+                
+                Material glassColor;
+                try {
+                    glassColor = Material.valueOf(glassColorStr.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    console.accept("&cInvalid glass color '" + glassColorStr + "' for category '" + categoryId + "', using WHITE_STAINED_GLASS_PANE");
+                    glassColor = Material.WHITE_STAINED_GLASS_PANE;
+                }
+
+                PerkCategoryConfig categoryConfig = new PerkCategoryConfig(categoryId, displayName, color, glassColor);
+                categories.put(categoryId, categoryConfig);
+                
+                console.accept("&aLoaded category: " + categoryId + " (" + displayName + ")");
+            }
+        }
+        return categories;
+    }
+
+    private void loadDefaultCategories(Map<String, PerkCategoryConfig> categories) {
+        // Default categories as fallback
+        categories.put("verde", new PerkCategoryConfig("verde", "&aCommon", "&a", Material.LIME_STAINED_GLASS_PANE));
+        categories.put("azul-clarito", new PerkCategoryConfig("azul-clarito", "&bUncommon", "&b", Material.LIGHT_BLUE_STAINED_GLASS_PANE));
+        categories.put("azul-oscuro", new PerkCategoryConfig("azul-oscuro", "&9Rare", "&9", Material.BLUE_STAINED_GLASS_PANE));
+        categories.put("roja", new PerkCategoryConfig("roja", "&cEpic", "&c", Material.RED_STAINED_GLASS_PANE));
+        categories.put("morada", new PerkCategoryConfig("morada", "&5Legendary", "&5", Material.PURPLE_STAINED_GLASS_PANE));
+        categories.put("naranja", new PerkCategoryConfig("naranja", "&6Ultimate", "&6", Material.ORANGE_STAINED_GLASS_PANE));
+    }
+
+    private Perk loadPerk(String perkId, ConfigurationSection section, Map<String, PerkCategoryConfig> categories) {
+        try {
+            // Get defaults from configuration
+            String defaultDisplayName = mainConfig.getString("perk-defaults.display-name", "");
+            String defaultDescription = mainConfig.getString("perk-defaults.description", "");
+            String defaultCategory = mainConfig.getString("perk-defaults.category", "verde");
+            String defaultTool = mainConfig.getString("perk-defaults.tool", "hoe");
+            double defaultChance = mainConfig.getDouble("perk-defaults.chance", 1.0);
+            String defaultMaterial = mainConfig.getString("perk-defaults.material", "ENCHANTED_BOOK");
+            
+            // Use configured defaults
+            String displayName = section.getString("display-name", defaultDisplayName.isEmpty() ? perkId : defaultDisplayName);
+            String description = section.getString("description", defaultDescription);
+            String category = section.getString("category", defaultCategory);
+            String tool = section.getString("tool", defaultTool);
+            double chance = section.getDouble("chance", defaultChance);
+            String materialName = section.getString("material", defaultMaterial);
+
+            // Parse material
+            Material displayMaterial;
+            try {
+                displayMaterial = Material.valueOf(materialName.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                console.accept("&cInvalid material '" + materialName + "' for perk '" + perkId + "', using ENCHANTED_BOOK");
+                displayMaterial = Material.ENCHANTED_BOOK;
+            }
+
+            // Load levels
+            Map<Integer, Perk.PerkLevel> levels = new HashMap<>();
+            ConfigurationSection levelsSection = section.getConfigurationSection("levels");
+            if (levelsSection != null) {
+                for (String levelStr : levelsSection.getKeys(false)) {
+                    try {
+                        int level = Integer.parseInt(levelStr);
+                        ConfigurationSection levelSection = levelsSection.getConfigurationSection(levelStr);
+                        if (levelSection != null) {
+                            String boostType = levelSection.getString("boost-type", "");
+                            for (String name : boostType.split(",")) {
+                                if (!name.isBlank() && BoostType.fromName(name) == null) {
+                                    console.accept("&cUnknown boost type '" + name.trim() + "' in level " + level + " of perk " + perkId);
+                                }
+                            }
+                            String boostAmount = String.valueOf(levelSection.get("boost-amount", "0"));
+                            double weight = levelSection.getDouble("weight", 1.0);
+                            if (weight < 0) {
+                                console.accept("&cNegative weight for level " + level + " of perk " + perkId + ", using 0");
+                                weight = 0;
+                            }
+                            
+                            levels.put(level, new Perk.PerkLevel(boostType, boostAmount, weight));
+                        }
+                    } catch (NumberFormatException e) {
+                        console.accept("&cInvalid level number '" + levelStr + "' for perk " + perkId);
+                    }
+                }
+            }
+
+            // Create lore
+            List<String> lore = new ArrayList<>();
+            lore.add("&7" + description);
+            lore.add("");
+            
+            PerkCategoryConfig perkCategory = categories.getOrDefault(category, categories.get("verde"));
+            lore.add(perkCategory.getColor() + perkCategory.getDisplayName());
+            lore.add("&7Chance: &f" + chance + "%");
+            lore.add("");
+            
+            if (!levels.isEmpty()) {
+                lore.add("&eLevels:");
+                for (Map.Entry<Integer, Perk.PerkLevel> entry : levels.entrySet().stream()
+                        .sorted(Map.Entry.comparingByKey()).collect(Collectors.toList())) {
+                    int level = entry.getKey();
+                    Perk.PerkLevel perkLevel = entry.getValue();
+                    lore.add("&7Level " + level + ": &f" + formatBoostDisplay(perkLevel));
+                }
+            }
+
+            return new Perk(perkId, displayName, description, category, tool, chance, levels, displayMaterial, lore);
+
+        } catch (Exception e) {
+            console.accept("&cError loading perk '" + perkId + "': " + e.getMessage());
+            return null;
+        }
+    }
+
+    private String formatBoostDisplay(Perk.PerkLevel level) {
+        List<BoostType> boosts = level.getBoostTypes();
+        if (boosts.isEmpty()) {
+            return level.getBoostAmount();
+        }
+
+        List<String> parts = new ArrayList<>();
+        for (BoostType type : boosts) {
+            parts.add(capitalizeFirst(type.getKey()) + " +" + level.getBoost(type) + "%");
+        }
+        
+        return String.join(", ", parts);
+    }
+
+    private String capitalizeFirst(String str) {
+        if (str == null || str.isEmpty()) {
+            return str;
+        }
+        return str.substring(0, 1).toUpperCase() + str.substring(1).toLowerCase();
+    }
+}
@@ -1,295 +1,277 @@
 package com.edtools.edtoolsperks.perks;
 
 import com.edtools.edtoolsperks.EdToolsPerks;
+import com.edtools.edtoolsperks.utils.ItemUtils;
 import com.edtools.edtoolsperks.utils.MessageUtils;
-import org.bukkit.Material;
-import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.random.RandomGenerator;
 
 public class PerkManager {
 
     private final EdToolsPerks plugin;
-    private final Map<String, Perk> perks = new HashMap<>();
-    private final Map<String, List<Perk>> perksByCategory = new HashMap<>();
-    private final Map<String, PerkCategoryConfig> categories = new HashMap<>();
+    // Replaced as a whole on reload; every reader takes one snapshot and uses only that
+    private volatile PerkRegistry registry = PerkRegistry.EMPTY;
+    private final Set<String> warnedToolTypes = ConcurrentHashMap.newKeySet();
+    private final RollRng rng;
+    private final AtomicBoolean simulating = new AtomicBoolean();
+    // /etp reload and ConfigWatcher can both build a registry; one at a time so neither publishes a stale one
+    private final Object reloadLock = new Object();
 
     public PerkManager(EdToolsPerks plugin) {
         this.plugin = plugin;
+        this.rng = new RollRng(plugin.getConfigManager().getConfig().getLong("rolls.rng-seed", 0L));
     }
 
+    // Loads on the calling thread; used on startup
     public void loadPerks() {
-        perks.clear();
-        perksByCategory.clear();
-        categories.clear();
-
-        FileConfiguration perksConfig = plugin.getConfigManager().getPerksConfig();
-        if (perksConfig == null) {
-            MessageUtils.sendConsole("&cPerks configuration not found!");
-            return;
+        PerkRegistry loaded = buildRegistry();
+        if (loaded != null) {
+            publish(loaded);
         }
-
-        // Load categories first
-        loadCategories(perksConfig);
-
-        // Load perks
-        ConfigurationSection perksSection = perksConfig.getConfigurationSection("perks");
-        if (perksSection == null) {
-            MessageUtils.sendConsole("&cNo perks section found in perks.yml!");
-            return;
-        }
-
-        int loadedPerks = 0;
-        for (String perkId : perksSection.getKeys(false)) {
-            ConfigurationSection perkSection = perksSection.getConfigurationSection(perkId);
-            if (perkSection != null) {
-                Perk perk = loadPerk(perkId, perkSection);
-                if (perk != null) {
-                    perks.put(perkId, perk);
-                    
-                    // Add to category list
-                    String category = perk.getCategory();
-                    perksByCategory.computeIfAbsent(category, k -> new ArrayList<>()).add(perk);
-                    
-                    loadedPerks++;
-                }
-            }
-        }
-
-        MessageUtils.sendConsole("&aLoaded " + loadedPerks + " perks across " + categories.size() + " categories!");
     }
 
-    private void loadCategories(FileConfiguration config) {
-        ConfigurationSection categoriesSection = config.getConfigurationSection("categories");
-        if (categoriesSection == null) {
-            MessageUtils.sendConsole("&cNo categories section found in perks.yml! Using defaults.");
-            loadDefaultCategories();
-            return;
-        }
-
-        for (String categoryId : categoriesSection.getKeys(false)) {
-            ConfigurationSection categorySection = categoriesSection.getConfigurationSection(categoryId);
-            if (categorySection != null) {
-                String displayName = categorySection.getString("display-name", categoryId);
-                String color = categorySection.getString("color", "&f");
-                String glassColorStr = categorySection.getString("glass-color", "WHITE_STAINED_GLASS_PANE");
-                
-                Material glassColor;
+    // Builds the new registry on an async thread and swaps it in when done. Rolls keep using the
+    // old one meanwhile. If perks.yml cannot be read the old registry stays. Completes with the
+    // registry in use afterwards.
+    public CompletableFuture<PerkRegistry> reloadPerks() {
+        CompletableFuture<PerkRegistry> result = new CompletableFuture<>();
+        new BukkitRunnable() {
+            @Override
+            public void run() {
                 try {
-                    glassColor = Material.valueOf(glassColorStr.toUpperCase());
-                } catch (IllegalArgumentException e) {
-                    MessageUtils.sendConsole("&cInvalid glass color '" + glassColorStr + "' for category '" + categoryId + "', using WHITE_STAINED_GLASS_PANE");
-                    glassColor = Material.WHITE_STAINED_GLASS_PANE;
+                    synchronized (reloadLock) {
+                        PerkRegistry loaded = buildRegistry();
+                        if (loaded != null) {
+                            publish(loaded);
+                        } else {
+                            MessageUtils.sendConsole("&cKeeping the previously loaded perks.");
+                        }
+                    }
+                    result.complete(registry);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
                 }
-
-                PerkCategoryConfig categoryConfig = new PerkCategoryConfig(categoryId, displayName, color, glassColor);
-                categories.put(categoryId, categoryConfig);
-                
-                MessageUtils.sendConsole("&aLoaded category: " + categoryId + " (" + displayName + ")");
             }
-        }
-    }
-
-    private void loadDefaultCategories() {
-        // Default categories as fallback
-        categories.put("verde", new PerkCategoryConfig("verde", "&aCommon", "&a", Material.LIME_STAINED_GLASS_PANE));
-        categories.put("azul-clarito", new PerkCategoryConfig("azul-clarito", "&bUncommon", "&b", Material.LIGHT_BLUE_STAINED_GLASS_PANE));
-        categories.put("azul-oscuro", new PerkCategoryConfig("azul-oscuro", "&9Rare", "&9", Material.BLUE_STAINED_GLASS_PANE));
-        categories.put("roja", new PerkCategoryConfig("roja", "&cEpic", "&c", Material.RED_STAINED_GLASS_PANE));
-        categories.put("morada", new PerkCategoryConfig("morada", "&5Legendary", "&5", Material.PURPLE_STAINED_GLASS_PANE));
-        categories.put("naranja", new PerkCategoryConfig("naranja", "&6Ultimate", "&6", Material.ORANGE_STAINED_GLASS_PANE));
+        }.runTaskAsynchronously(plugin);
+        return result;
     }
 
-    private Perk loadPerk(String perkId, ConfigurationSection section) {
-        try {
-            FileConfiguration mainConfig = plugin.getConfigManager().getConfig();
-            
-            // Get defaults from configuration
-            String defaultDisplayName = mainConfig.getString("perk-defaults.display-name", "");
-            String defaultDescription = mainConfig.getString("perk-defaults.description", "");
-            String defaultCategory = mainConfig.getString("perk-defaults.category", "verde");
-            String defaultTool = mainConfig.getString("perk-defaults.tool", "hoe");
-            double defaultChance = mainConfig.getDouble("perk-defaults.chance", 1.0);
-            String defaultMaterial = mainConfig.getString("perk-defaults.material", "ENCHANTED_BOOK");
-            
-            // Use configured defaults
-            String displayName = section.getString("display-name", defaultDisplayName.isEmpty() ? perkId : defaultDisplayName);
-            String description = section.getString("description", defaultDescription);
-            String category = section.getString("category", defaultCategory);
-            String tool = section.getString("tool", defaultTool);
-            double chance = section.getDouble("chance", defaultChance);
-            String materialName = section.getString("material", defaultMaterial);
-
-            // Parse material
-            Material displayMaterial;
-            try {
-                displayMaterial = Material.valueOf(materialName.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                MessageUtils.sendConsole("&cInvalid material '" + materialName + "' for perk '" + perkId + "', using ENCHANTED_BOOK");
-                displayMaterial = Material.ENCHANTED_BOOK;
+    // Called by ConfigWatcher, on its thread, with a freshly parsed perks.yml. Perks whose config did
+    // not change are carried over from the current registry, so only new or edited perks are parsed
+    // and get a display item; the drop tables are rebuilt (they are O(n)) and everything is published at once.
+    public void applyPerksFile(FileConfiguration perksConfig) {
+        synchronized (reloadLock) {
+            PerkRegistry previous = registry;
+            PerkLoader loader = new PerkLoader(plugin.getConfigManager().getConfig(), MessageUtils::sendConsole);
+            PerkRegistry loaded = loader.load(perksConfig, previous);
+            if (loaded == null) {
+                MessageUtils.sendConsole("&cKeeping the previously loaded perks.");
+                return;
             }
+            buildDisplayItems(loaded);
 
-            // Load levels
-            Map<Integer, Perk.PerkLevel> levels = new HashMap<>();
-            ConfigurationSection levelsSection = section.getConfigurationSection("levels");
-            if (levelsSection != null) {
-                for (String levelStr : levelsSection.getKeys(false)) {
-                    try {
-                        int level = Integer.parseInt(levelStr);
-                        ConfigurationSection levelSection = levelsSection.getConfigurationSection(levelStr);
-                        if (levelSection != null) {
-                            String boostType = levelSection.getString("boost-type", "");
-                            String boostAmount = String.valueOf(levelSection.get("boost-amount", "0"));
-                            
-                            levels.put(level, new Perk.PerkLevel(boostType, boostAmount));
-                        }
-                    } catch (NumberFormatException e) {
-                        MessageUtils.sendConsole("&cInvalid level number '" + levelStr + "' for perk " + perkId);
-                    }
+            int removed = 0;
+            for (Perk perk : previous.getAllPerks()) {
+                if (loaded.getPerk(perk.getId()) == null) {
+                    removed++;
                 }
             }
+            int rebuilt = loaded.size() - loader.getReusedCount();
+            registry = loaded;
+            warnedToolTypes.clear();
+            MessageUtils.sendConsole("&aperks.yml changed: " + rebuilt + " perks added or updated, " + removed + " removed, "
+                    + loader.getReusedCount() + " unchanged");
+        }
+    }
 
-            // Create lore
-            List<String> lore = new ArrayList<>();
-            lore.add("&7" + description);
-            lore.add("");
-            
-            PerkCategoryConfig perkCategory = getCategory(category);
-            lore.add(perkCategory.getColor() + perkCategory.getDisplayName());
-            lore.add("&7Chance: &f" + chance + "%");
-            lore.add("");
-            
-            if (!levels.isEmpty()) {
-                lore.add("&eLevels:");
-                for (Map.Entry<Integer, Perk.PerkLevel> entry : levels.entrySet().stream()
-                        .sorted(Map.Entry.comparingByKey()).collect(Collectors.toList())) {
-                    int level = entry.getKey();
-                    Perk.PerkLevel perkLevel = entry.getValue();
-                    lore.add("&7Level " + level + ": &f" + formatBoostDisplay(perkLevel));
-                }
-            }
+    private void publish(PerkRegistry loaded) {
+        registry = loaded;
+        warnedToolTypes.clear();
+        MessageUtils.sendConsole("&aLoaded " + loaded.size() + " perks across " + loaded.getCategories().size() + " categories!");
+    }
 
-            return new Perk(perkId, displayName, description, category, tool, chance, levels, displayMaterial, lore);
+    public PerkRegistry getRegistry() {
+        return registry;
+    }
 
-        } catch (Exception e) {
-            MessageUtils.sendConsole("&cError loading perk '" + perkId + "': " + e.getMessage());
-            return null;
+    // Returns null when perks.yml is missing or has no perks section
+    private PerkRegistry buildRegistry() {
+        PerkRegistry loaded = new PerkLoader(plugin.getConfigManager().getConfig(), MessageUtils::sendConsole)
+                .load(plugin.getConfigManager().getPerksConfig());
+        if (loaded != null) {
+            buildDisplayItems(loaded);
         }
+        return loaded;
     }
 
-    private String formatBoostDisplay(Perk.PerkLevel level) {
-        Map<String, Double> boosts = level.getParsedBoosts();
-        if (boosts.isEmpty()) {
-            return level.getBoostAmount();
+    // Name and lore only change on reload, so each perk's GUI item is colorized and built once here
+    // and the perks list just clones it. Runs before publish, so readers never see a perk without one.
+    private void buildDisplayItems(PerkRegistry loaded) {
+        for (Perk perk : loaded.getAllPerks()) {
+            if (perk.hasDisplayItem()) {
+                // Carried over unchanged from the previous registry
+                continue;
+            }
+            String color = loaded.getCategory(perk.getCategory()).getColor();
+            perk.setDisplayItem(ItemUtils.createItem(perk.getDisplayMaterial(), color + perk.getDisplayName(),
+                    perk.getLore().toArray(new String[0])));
         }
+    }
 
-        List<String> parts = new ArrayList<>();
-        for (Map.Entry<String, Double> entry : boosts.entrySet()) {
-            String type = entry.getKey();
-            Double amount = entry.getValue();
-            parts.add(capitalizeFirst(type) + " +" + amount + "%");
-        }
-        
-        return String.join(", ", parts);
+    // The table for a tool type ("hoe", "pickaxe"...). Unknown types, or types without any perk, get
+    // an empty table so the roll is refused instead of dropping another tool's perks. Every perk is
+    // only used when the tool type cannot be determined at all (null).
+    public DropTable getDropTable(String toolType) {
+        return getDropTable(registry, toolType);
     }
 
-    private String capitalizeFirst(String str) {
-        if (str == null || str.isEmpty()) {
-            return str;
+    private DropTable getDropTable(PerkRegistry current, String toolType) {
+        if (toolType == null) {
+            return current.getGlobalTable();
         }
-        return str.substring(0, 1).toUpperCase() + str.substring(1).toLowerCase();
+        DropTable table = current.getToolTable(toolType);
+        if (table == null) {
+            if (warnedToolTypes.add(toolType)) {
+                plugin.getLogger().warning("No perks configured for tool type '" + toolType + "', rolls with it are refused");
+            }
+            return DropTable.EMPTY;
+        }
+        return table;
     }
 
     public Perk getPerk(String perkId) {
-        return perks.get(perkId);
+        return registry.getPerk(perkId);
     }
 
     public Collection<Perk> getAllPerks() {
-        return perks.values();
+        return registry.getAllPerks();
     }
 
     public List<Perk> getPerksByCategory(String category) {
-        return perksByCategory.getOrDefault(category, new ArrayList<>());
+        return registry.getPerksByCategory(category);
     }
 
     public Map<String, PerkCategoryConfig> getCategories() {
-        return categories;
+        return registry.getCategories();
     }
 
     public PerkCategoryConfig getCategory(String categoryId) {
-        return categories.getOrDefault(categoryId, categories.get("verde"));
+        return registry.getCategory(categoryId);
     }
 
     public Perk rollRandomPerk(boolean guaranteePurple) {
-        plugin.getLogger().info("Rolling random perk - Guarantee purple: " + guaranteePurple);
-        plugin.getLogger().info("Total perks available: " + perks.size());
-        
-        if (guaranteePurple) {
-            List<Perk> purplePerks = getPerksByCategory("morada");
-            plugin.getLogger().info("Purple perks available: " + purplePerks.size());
-            if (!purplePerks.isEmpty()) {
-                Perk selected = purplePerks.get(ThreadLocalRandom.current().nextInt(purplePerks.size()));
-                plugin.getLogger().info("Selected guaranteed purple perk: " + selected.getDisplayName());
-                return selected;
-            }
+        return rollRandomPerk(null, guaranteePurple);
+    }
+
+    // One roll outside any player's pity; the guarantee picks uniformly among the table's morada perks
+    public Perk rollRandomPerk(String toolType, boolean guaranteePurple) {
+        DropTable table = getDropTable(registry, toolType);
+        if (table.isEmpty()) {
+            return null;
+        }
+        int index = table.rollIndex(rng.forRoll(rng.nextSeed()), guaranteePurple ? DropTable.GUARANTEED_CATEGORY : null);
+        return table.getPerk(index);
+    }
+
+    // Draws a whole multi-roll in one loop, running the player's pity counters forward roll by roll
+    // so any roll of the batch can be forced. Each roll gets its own seed (kept in the batch for
+    // roll_history). Returns null when there is nothing to roll.
+    public RollBatch rollBatch(int count, RollContext context) {
+        PerkRegistry current = registry;
+        DropTable table = getDropTable(current, context.toolType());
+        if (count <= 0 || table.isEmpty()) {
+            plugin.getLogger().warning("No perks to roll for tool type '" + context.toolType() + "'");
+            return null;
         }
 
-        // Calculate total weight based on chances
-        double totalWeight = perks.values().stream()
-                .mapToDouble(Perk::getChance)
-                .sum();
+        PityEngine pity = current.getPity();
+        long pityState = context.pityState();
+        int[] perkIndex = new int[count];
+        int[] levels = new int[count];
+        long[] seeds = new long[count];
+        boolean[] guaranteed = new boolean[count];
+
+        for (int i = 0; i < count; i++) {
+            seeds[i] = rng.nextSeed();
+            String forced = pity.forcedCategory(pityState, rng.forPity(seeds[i]));
+            draw(table, rng.forRoll(seeds[i]), forced, perkIndex, levels, i);
+
+            String category = table.getPerk(perkIndex[i]).getCategory();
+            // Not guaranteed if this tool's table has no perk in the forced category
+            guaranteed[i] = category.equals(forced);
+            pityState = pity.record(pityState, category);
+        }
 
-        plugin.getLogger().info("Total weight for random selection: " + totalWeight);
+        return new RollBatch(table, context.toolType(), perkIndex, levels, seeds, guaranteed, pityState);
+    }
 
-        if (totalWeight <= 0) {
-            // Fallback to random selection
-            plugin.getLogger().info("Using fallback random selection");
-            List<Perk> allPerks = new ArrayList<>(perks.values());
-            if (allPerks.isEmpty()) {
-                plugin.getLogger().severe("ERROR: No perks available at all!");
-                return null;
-            }
-            Perk selected = allPerks.get(ThreadLocalRandom.current().nextInt(allPerks.size()));
-            plugin.getLogger().info("Selected fallback perk: " + selected.getDisplayName());
-            return selected;
+    // Re-runs one stored roll with the current perks.yml. forcedCategory is the category pity forced
+    // (the recorded category of a guaranteed roll), or null. Matches the original as long as the
+    // tool's drop table has not changed since. Returns null when there is nothing to roll.
+    public RollBatch replay(long seed, String toolType, String forcedCategory) {
+        DropTable table = getDropTable(registry, toolType);
+        if (table.isEmpty()) {
+            return null;
         }
 
-        double random = ThreadLocalRandom.current().nextDouble() * totalWeight;
-        double currentWeight = 0;
+        int[] perkIndex = new int[1];
+        int[] levels = new int[1];
+        draw(table, rng.forRoll(seed), forcedCategory, perkIndex, levels, 0);
+        return new RollBatch(table, toolType, perkIndex, levels, new long[]{seed}, new boolean[]{forcedCategory != null}, 0L);
+    }
 
-        plugin.getLogger().info("Random value: " + random + " out of " + totalWeight);
+    // The one place a roll is sampled, so live rolls and replays can never drift apart
+    private void draw(DropTable table, RandomGenerator random, String forcedCategory, int[] perkIndex, int[] levels, int i) {
+        int index = table.rollIndex(random, forcedCategory);
+        perkIndex[i] = index;
+        levels[i] = table.getPerk(index).rollLevel(random);
+    }
 
-        for (Perk perk : perks.values()) {
-            currentWeight += perk.getChance();
-            if (random <= currentWeight) {
-                plugin.getLogger().info("Selected weighted perk: " + perk.getDisplayName());
-                return perk;
-            }
+    // Runs the drop-rate simulator on an async thread against the current perks and pity setting.
+    // One simulation at a time; completes with null if one is already running.
+    public CompletableFuture<RollSimulator.Result> simulate(String toolType, int players, int rollsPerPlayer) {
+        CompletableFuture<RollSimulator.Result> result = new CompletableFuture<>();
+        if (!simulating.compareAndSet(false, true)) {
+            result.complete(null);
+            return result;
         }
 
-        // Fallback
-        Perk fallback = perks.values().iterator().next();
-        plugin.getLogger().info("Using final fallback perk: " + fallback.getDisplayName());
-        return fallback;
+        PerkRegistry current = registry;
+        DropTable table = getDropTable(current, toolType);
+        // Leave a core for the server thread
+        int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(new RollSimulator(table, current.getPity()).run(players, rollsPerPlayer, parallelism, 0L));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    simulating.set(false);
+                }
+            }
+        }.runTaskAsynchronously(plugin);
+        return result;
     }
 
+    // Weighted by the optional levels.<n>.weight values, compiled into the Perk at load
     public int rollPerkLevel(Perk perk) {
-        if (perk == null || perk.getLevels().isEmpty()) {
+        if (perk == null) {
             return 1;
         }
-
-        // For now, randomly select from available levels
-        // You could implement weighted level selection here
-        List<Integer> availableLevels = new ArrayList<>(perk.getLevels().keySet());
-        return availableLevels.get(ThreadLocalRandom.current().nextInt(availableLevels.size()));
+        return perk.rollLevel(rng.forRoll(rng.nextSeed()));
     }
 
+    // Precomputed in loadPerks(); empty for tool types without perks
     public List<Perk> getPerksForTool(String tool) {
-        return perks.values().stream()
-                .filter(perk -> perk.getTool().equalsIgnoreCase(tool))
-                .collect(Collectors.toList());
+        DropTable table = registry.getToolTable(tool);
+        return table != null ? table.getPerks() : List.of();
     }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.edtools.edtoolsperks.perks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Everything loaded from perks.yml, frozen: perks, categories and the drop tables built from them,
+// plus the pity tiers from config.yml that decide which of those categories a roll is forced into.
+// PerkManager builds a new one on reload and swaps it in with a single volatile write, so readers
+// on any thread see either the old registry or the new one, never a half-loaded mix.
+public final class PerkRegistry {
+
+    public static final PerkRegistry EMPTY = new PerkRegistry(Map.of(), Map.of(), PityEngine.NONE, Map.of());
+
+    private final Map<String, Perk> perks;
+    private final Map<String, List<Perk>> perksByCategory;
+    private final Map<String, PerkCategoryConfig> categories;
+    private final DropTable globalTable;
+    private final Map<String, DropTable> toolTables;
+    private final PityEngine pity;
+    // Perk id -> what its config looked like when it was parsed (see PerkLoader.load with a previous registry)
+    private final Map<String, Source> sources;
+
+    // Leaf values of a perk's section and of the category section its lore was built from
+    public record Source(Map<String, Object> perk, Map<String, Object> category) {
+    }
+
+    // Both maps are copied; iteration order (config order) is kept
+    public PerkRegistry(Map<String, Perk> perks, Map<String, PerkCategoryConfig> categories, PityEngine pity, Map<String, Source> sources) {
+        this.pity = pity;
+        this.sources = Map.copyOf(sources);
+        this.perks = Collections.unmodifiableMap(new LinkedHashMap<>(perks));
+        this.categories = Collections.unmodifiableMap(new LinkedHashMap<>(categories));
+
+        Map<String, List<Perk>> byCategory = new HashMap<>();
+        Map<String, List<Perk>> byTool = new HashMap<>();
+        for (Perk perk : this.perks.values()) {
+            byCategory.computeIfAbsent(perk.getCategory(), key -> new ArrayList<>()).add(perk);
+            byTool.computeIfAbsent(perk.getTool().toLowerCase(Locale.ROOT), key -> new ArrayList<>()).add(perk);
+        }
+
+        Map<String, List<Perk>> frozenCategories = new HashMap<>();
+        byCategory.forEach((category, list) -> frozenCategories.put(category, List.copyOf(list)));
+        this.perksByCategory = Collections.unmodifiableMap(frozenCategories);
+
+        Map<String, DropTable> tables = new HashMap<>();
+        byTool.forEach((tool, list) -> tables.put(tool, new DropTable(list)));
+        this.toolTables = Collections.unmodifiableMap(tables);
+        this.globalTable = new DropTable(new ArrayList<>(this.perks.values()));
+    }
+
+    public Perk getPerk(String perkId) {
+        return perks.get(perkId);
+    }
+
+    public Collection<Perk> getAllPerks() {
+        return perks.values();
+    }
+
+    public List<Perk> getPerksByCategory(String category) {
+        return perksByCategory.getOrDefault(category, List.of());
+    }
+
+    public Map<String, PerkCategoryConfig> getCategories() {
+        return categories;
+    }
+
+    public PerkCategoryConfig getCategory(String categoryId) {
+        return categories.getOrDefault(categoryId, categories.get("verde"));
+    }
+
+    // null when no perk is configured for this tool type
+    public DropTable getToolTable(String toolType) {
+        return toolTables.get(toolType.toLowerCase(Locale.ROOT));
+    }
+
+    public DropTable getGlobalTable() {
+        return globalTable;
+    }
+
+    Source getSource(String perkId) {
+        return sources.get(perkId);
+    }
+
+    public PityEngine getPity() {
+        return pity;
+    }
+
+    public int size() {
+        return perks.size();
+    }
+}
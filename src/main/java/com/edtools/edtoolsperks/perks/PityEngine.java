@@ -0,0 +1,162 @@
+package com.edtools.edtoolsperks.perks;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+
+// Per-category pity from rolls.pity in config.yml. Each tier counts the rolls since its category
+// last dropped: past soft-start every roll gets a rising extra chance to be forced into the
+// category, and the hard-th roll always is. A player's counters are packed into one long
+// (16 bits per tier, in config order) that lives in PlayerProfile and is stored in players.pity_state.
+// Evaluating a roll touches at most MAX_TIERS counters, whatever the player's history.
+public final class PityEngine {
+
+    public static final int MAX_TIERS = 4;
+    // Counters stop here instead of wrapping into the next tier
+    public static final int MAX_COUNT = 0xFFFF;
+    private static final int BITS = 16;
+
+    public static final PityEngine NONE = new PityEngine(List.of());
+
+    // softStart/hard of 0 turn that part off; softStep is the extra chance added per roll past softStart
+    public record Tier(String category, int softStart, double softStep, int hard) {
+
+        // Extra chance for the roll that would be number `roll` without a hit
+        public double softChance(int roll) {
+            if (softStart <= 0 || softStep <= 0 || roll <= softStart) {
+                return 0.0;
+            }
+            return Math.min(1.0, (roll - softStart) * softStep);
+        }
+
+        public boolean isHard(int roll) {
+            return hard > 0 && roll >= hard;
+        }
+    }
+
+    // Storage order (slot i = bits 16i..16i+15)
+    private final Tier[] tiers;
+    // Evaluation order: highest hard pity first, so the rarest category wins when two trigger together
+    private final int[] priority;
+
+    public PityEngine(List<Tier> tiers) {
+        if (tiers.size() > MAX_TIERS) {
+            throw new IllegalArgumentException("At most " + MAX_TIERS + " pity tiers are supported");
+        }
+        this.tiers = tiers.toArray(new Tier[0]);
+        Integer[] order = new Integer[this.tiers.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(rank(this.tiers[b]), rank(this.tiers[a])));
+        this.priority = Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int rank(Tier tier) {
+        return tier.hard() > 0 ? tier.hard() : tier.softStart();
+    }
+
+    // Reads rolls.pity; without it, rolls.guaranteed-purple-at becomes a single hard-only morada tier
+    public static PityEngine fromConfig(ConfigurationSection rolls, Consumer<String> console) {
+        if (rolls == null) {
+            return new PityEngine(List.of(new Tier(DropTable.GUARANTEED_CATEGORY, 0, 0.0, 500)));
+        }
+
+        ConfigurationSection section = rolls.getConfigurationSection("pity");
+        if (section == null) {
+            int hard = Math.min(rolls.getInt("guaranteed-purple-at", 500), MAX_COUNT);
+            return hard > 0 ? new PityEngine(List.of(new Tier(DropTable.GUARANTEED_CATEGORY, 0, 0.0, hard))) : NONE;
+        }
+
+        List<Tier> tiers = new ArrayList<>();
+        for (String category : section.getKeys(false)) {
+            ConfigurationSection tierSection = section.getConfigurationSection(category);
+            if (tierSection == null) {
+                continue;
+            }
+            if (tiers.size() == MAX_TIERS) {
+                console.accept("&cOnly " + MAX_TIERS + " pity tiers are supported, ignoring '" + category + "'");
+                continue;
+            }
+
+            int softStart = Math.max(0, tierSection.getInt("soft-start", 0));
+            double softStep = Math.max(0.0, tierSection.getDouble("soft-step", 0.0));
+            int hard = Math.max(0, tierSection.getInt("hard", 0));
+            if (hard > MAX_COUNT) {
+                console.accept("&cPity hard value for '" + category + "' is above " + MAX_COUNT + ", using " + MAX_COUNT);
+                hard = MAX_COUNT;
+            }
+            if (hard > 0 && softStart >= hard) {
+                console.accept("&cPity soft-start for '" + category + "' is not below hard, soft pity will never trigger");
+            }
+            tiers.add(new Tier(category, softStart, softStep, hard));
+        }
+        return new PityEngine(tiers);
+    }
+
+    // The category this roll is forced into, or null. Hard pity is checked before any soft pity
+    // draw, so a guaranteed roll never consumes randomness.
+    public String forcedCategory(long state, RandomGenerator random) {
+        for (int tier : priority) {
+            if (tiers[tier].isHard(getCount(state, tier) + 1)) {
+                return tiers[tier].category();
+            }
+        }
+        for (int tier : priority) {
+            double chance = tiers[tier].softChance(getCount(state, tier) + 1);
+            if (chance > 0 && random.nextDouble() < chance) {
+                return tiers[tier].category();
+            }
+        }
+        return null;
+    }
+
+    // State after a roll that dropped a perk of this category: its tier resets, every other tier counts up
+    public long record(long state, String category) {
+        for (int tier = 0; tier < tiers.length; tier++) {
+            if (tiers[tier].category().equals(category)) {
+                state = setCount(state, tier, 0);
+            } else {
+                state = setCount(state, tier, Math.min(getCount(state, tier) + 1, MAX_COUNT));
+            }
+        }
+        return state;
+    }
+
+    public int getCount(long state, int tier) {
+        return (int) ((state >>> (tier * BITS)) & MAX_COUNT);
+    }
+
+    public long setCount(long state, int tier, int count) {
+        int shift = tier * BITS;
+        return (state & ~((long) MAX_COUNT << shift)) | ((long) count << shift);
+    }
+
+    // Slot of the category's tier, or -1
+    public int indexOf(String category) {
+        for (int tier = 0; tier < tiers.length; tier++) {
+            if (tiers[tier].category().equals(category)) {
+                return tier;
+            }
+        }
+        return -1;
+    }
+
+    // The tier checked first (the rarest), or null without tiers
+    public Tier getTopTier() {
+        return priority.length > 0 ? tiers[priority[0]] : null;
+    }
+
+    public List<Tier> getTiers() {
+        return Collections.unmodifiableList(Arrays.asList(tiers));
+    }
+
+    public boolean isEmpty() {
+        return tiers.length == 0;
+    }
+}
@@ -0,0 +1,60 @@
+package com.edtools.edtoolsperks.perks;
+
+// Result of one multi-roll click as parallel primitive arrays: roll i gave
+// table.getPerk(perkIndex[i]) at level[i], drawn from seed[i]. The last roll is the one the tool keeps.
+// pityState is the player's pity counters after the last roll; toolType is the tool type the table
+// was picked for (null = every perk).
+public final class RollBatch {
+
+    private final DropTable table;
+    private final int[] perkIndex;
+    private final int[] level;
+    private final long[] seed;
+    private final boolean[] guaranteed;
+    private final long pityState;
+    private final String toolType;
+
+    RollBatch(DropTable table, String toolType, int[] perkIndex, int[] level, long[] seed, boolean[] guaranteed, long pityState) {
+        this.table = table;
+        this.toolType = toolType;
+        this.perkIndex = perkIndex;
+        this.level = level;
+        this.seed = seed;
+        this.guaranteed = guaranteed;
+        this.pityState = pityState;
+    }
+
+    public int size() {
+        return perkIndex.length;
+    }
+
+    public Perk getPerk(int roll) {
+        return table.getPerk(perkIndex[roll]);
+    }
+
+    public int getLevel(int roll) {
+        return level[roll];
+    }
+
+    // Replays the roll through PerkManager.replay
+    public long getSeed(int roll) {
+        return seed[roll];
+    }
+
+    // True when pity (soft or hard) forced the roll into its perk's category
+    public boolean isGuaranteed(int roll) {
+        return guaranteed[roll];
+    }
+
+    public long getPityState() {
+        return pityState;
+    }
+
+    public String getToolType() {
+        return toolType;
+    }
+
+    public int getLastIndex() {
+        return perkIndex.length - 1;
+    }
+}
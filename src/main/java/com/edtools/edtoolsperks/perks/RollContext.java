@@ -0,0 +1,6 @@
+package com.edtools.edtoolsperks.perks;
+
+// What a multi-roll is drawn for: the held tool's type (null = any tool) and the player's
+// packed pity counters before the first roll (see PityEngine)
+public record RollContext(String toolType, long pityState) {
+}
@@ -0,0 +1,67 @@
+package com.edtools.edtoolsperks.perks;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+// Source of roll randomness. Every roll gets its own 64-bit seed from one root stream and is drawn
+// from a generator seeded with that value alone, so storing the seed is enough to replay the exact
+// draw later. A fixed root seed (rolls.rng-seed) makes whole sessions deterministic.
+public final class RollRng {
+
+    private static final long PITY_SALT = 0x9E3779B97F4A7C15L;
+
+    private final SplittableRandom root;
+    // Reseeded for every roll instead of allocating a generator per roll
+    private final ThreadLocal<Stream> rollStreams = ThreadLocal.withInitial(Stream::new);
+    private final ThreadLocal<Stream> pityStreams = ThreadLocal.withInitial(Stream::new);
+
+    // seed 0 = a fresh random root on every start
+    public RollRng(long seed) {
+        this.root = seed != 0 ? new SplittableRandom(seed) : new SplittableRandom();
+    }
+
+    public synchronized long nextSeed() {
+        return root.nextLong();
+    }
+
+    // The generator a roll with this seed draws from, on every server and every replay.
+    // It is this thread's shared instance: only valid until the next forRoll on the same thread.
+    public RandomGenerator forRoll(long seed) {
+        return rollStreams.get().reset(seed);
+    }
+
+    // Separate stream for the roll's soft pity check, so the draw itself does not depend on
+    // whether pity was evaluated and a replay only needs the category pity forced
+    public RandomGenerator forPity(long seed) {
+        return pityStreams.get().reset(seed ^ PITY_SALT);
+    }
+
+    // SplitMix64 on a single long: the same sequence new SplittableRandom(seed) produces, so
+    // seeds stored before this class reused its generators still replay the same rolls
+    static final class Stream implements RandomGenerator {
+
+        private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+        private long state;
+
+        Stream reset(long seed) {
+            state = seed;
+            return this;
+        }
+
+        @Override
+        public long nextLong() {
+            long z = state += GOLDEN_GAMMA;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        @Override
+        public int nextInt() {
+            long z = state += GOLDEN_GAMMA;
+            z = (z ^ (z >>> 33)) * 0x62A9D9ED799705F5L;
+            return (int) (((z ^ (z >>> 28)) * 0xCB24D0A5C88C35B3L) >>> 32);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.edtools.edtoolsperks.perks;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Monte Carlo drop-rate simulator. Plays rolls for many simulated players against one DropTable,
+// with the PityEngine applied, and reports how often each perk and category came up and how many
+// rolls it took to get a perk of the top pity tier's category. CPU only: no database, no server thread.
+// Players are split across a fork/join pool; every subtask gets its own SplittableRandom stream
+// (split from the parent's), so results are reproducible for a given seed and split layout.
+public final class RollSimulator {
+
+    // Simulated players per leaf task
+    private static final int LEAF_PLAYERS = 16;
+    // Longest run to the target category tracked exactly when it has no hard pity; longer runs are counted together
+    private static final int NO_PITY_HISTOGRAM_SIZE = 10_000;
+
+    public record Result(DropTable table, PityEngine pity, String target, int players, int rollsPerPlayer, long[] perkCounts,
+                         long guaranteed, long[] rollsToHit, long unfinished, int threads, long durationMs) {
+
+        public long totalRolls() {
+            return (long) players * rollsPerPlayer;
+        }
+
+        // Category -> rolls, in the order categories first appear in the table
+        public Map<String, Long> categoryCounts() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (int i = 0; i < perkCounts.length; i++) {
+                counts.merge(table.getPerk(i).getCategory(), perkCounts[i], Long::sum);
+            }
+            return counts;
+        }
+
+        // Number of completed runs to a target perk (both natural and pity hits)
+        public long hits() {
+            long total = 0;
+            for (long count : rollsToHit) {
+                total += count;
+            }
+            return total;
+        }
+
+        public double meanRollsToHit() {
+            long hits = hits();
+            if (hits == 0) {
+                return 0.0;
+            }
+            double sum = 0;
+            for (int rolls = 1; rolls < rollsToHit.length; rolls++) {
+                sum += (double) rolls * rollsToHit[rolls];
+            }
+            return sum / hits;
+        }
+
+        // Smallest n such that at least p of all runs hit within n rolls; -1 when there were no hits.
+        // Without hard pity the last bucket also holds longer runs, so it reads as "that many or more".
+        public int rollsToHitPercentile(double p) {
+            long hits = hits();
+            if (hits == 0) {
+                return -1;
+            }
+            long target = (long) Math.ceil(p * hits);
+            long seen = 0;
+            for (int rolls = 1; rolls < rollsToHit.length; rolls++) {
+                seen += rollsToHit[rolls];
+                if (seen >= Math.max(1, target)) {
+                    return rolls;
+                }
+            }
+            return rollsToHit.length - 1;
+        }
+
+        // Plain-text report; perkLimit caps the per-perk lines (most frequent first)
+        public List<String> format(int perkLimit) {
+            List<String> lines = new ArrayList<>();
+            long total = totalRolls();
+            lines.add("Simulated " + total + " rolls (" + players + " players x " + rollsPerPlayer + ") in "
+                    + durationMs + "ms on " + threads + " threads");
+            if (pity.isEmpty()) {
+                lines.add("Pity: off");
+            }
+            for (PityEngine.Tier tier : pity.getTiers()) {
+                lines.add("Pity " + tier.category() + ": soft " + (tier.softStart() > 0 ? tier.softStart() + " (+" + tier.softStep() + "/roll)" : "off")
+                        + ", hard " + (tier.hard() > 0 ? tier.hard() : "off"));
+            }
+
+            lines.add("Categories:");
+            categoryCounts().forEach((category, count) -> lines.add(String.format("  %-14s %10d  %7.3f%%", category, count, percent(count, total))));
+
+            lines.add("Perks:");
+            Integer[] order = new Integer[perkCounts.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(perkCounts[b], perkCounts[a]));
+            for (int i = 0; i < order.length && i < perkLimit; i++) {
+                Perk perk = table.getPerk(order[i]);
+                lines.add(String.format("  %-24s %10d  %7.3f%%  (chance %s)", perk.getId(), perkCounts[order[i]],
+                        percent(perkCounts[order[i]], total), perk.getChance()));
+            }
+            if (order.length > perkLimit) {
+                lines.add("  ... " + (order.length - perkLimit) + " more");
+            }
+
+            lines.add("Rolls to " + target + ": " + hits() + " hits, " + guaranteed + " rolls forced by pity, "
+                    + unfinished + " players still waiting at the end");
+            if (hits() > 0) {
+                lines.add(String.format("  mean %.1f, p50 %d, p90 %d, p99 %d, p99.9 %d", meanRollsToHit(),
+                        rollsToHitPercentile(0.50), rollsToHitPercentile(0.90), rollsToHitPercentile(0.99), rollsToHitPercentile(0.999)));
+            }
+            return lines;
+        }
+
+        private static double percent(long count, long total) {
+            return total > 0 ? count * 100.0 / total : 0.0;
+        }
+    }
+
+    // Counts from a range of players; merged up the fork/join tree
+    private static final class Tally {
+        final long[] perkCounts;
+        final long[] rollsToHit;
+        long guaranteed;
+        long unfinished;
+
+        Tally(int perks, int histogramSize) {
+            this.perkCounts = new long[perks];
+            this.rollsToHit = new long[histogramSize];
+        }
+
+        Tally merge(Tally other) {
+            for (int i = 0; i < perkCounts.length; i++) {
+                perkCounts[i] += other.perkCounts[i];
+            }
+            for (int i = 0; i < rollsToHit.length; i++) {
+                rollsToHit[i] += other.rollsToHit[i];
+            }
+            guaranteed += other.guaranteed;
+            unfinished += other.unfinished;
+            return this;
+        }
+    }
+
+    private final class PlayerRange extends RecursiveTask<Tally> {
+
+        private final int players;
+        private final int rolls;
+        private final SplittableRandom random;
+
+        PlayerRange(int players, int rolls, SplittableRandom random) {
+            this.players = players;
+            this.rolls = rolls;
+            this.random = random;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (players <= LEAF_PLAYERS) {
+                Tally tally = new Tally(table.getPerks().size(), histogramSize);
+                for (int i = 0; i < players; i++) {
+                    simulatePlayer(random, rolls, tally);
+                }
+                return tally;
+            }
+
+            int half = players / 2;
+            PlayerRange left = new PlayerRange(half, rolls, random.split());
+            left.fork();
+            Tally right = new PlayerRange(players - half, rolls, random).compute();
+            return right.merge(left.join());
+        }
+    }
+
+    private final DropTable table;
+    private final PityEngine pity;
+    private final String target;
+    private final int histogramSize;
+    private final boolean[] hitPerk;
+
+    // Rolls to the top pity tier's category are measured (morada when there is no pity)
+    public RollSimulator(DropTable table, PityEngine pity) {
+        this.table = table;
+        this.pity = pity;
+        PityEngine.Tier top = pity.getTopTier();
+        this.target = top != null ? top.category() : DropTable.GUARANTEED_CATEGORY;
+        this.histogramSize = (top != null && top.hard() > 0 ? top.hard() : NO_PITY_HISTOGRAM_SIZE) + 1;
+        this.hitPerk = new boolean[table.getPerks().size()];
+        for (int i = 0; i < hitPerk.length; i++) {
+            hitPerk[i] = target.equals(table.getPerk(i).getCategory());
+        }
+    }
+
+    // Blocking and CPU bound; call from an async thread. Uses parallelism threads in a pool of its
+    // own that is shut down afterwards. seed 0 = random.
+    public Result run(int players, int rollsPerPlayer, int parallelism, long seed) {
+        if (table.isEmpty() || players <= 0 || rollsPerPlayer <= 0) {
+            throw new IllegalArgumentException("Nothing to simulate");
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            long start = System.currentTimeMillis();
+            SplittableRandom random = seed != 0 ? new SplittableRandom(seed) : new SplittableRandom();
+            Tally tally = pool.invoke(new PlayerRange(players, rollsPerPlayer, random));
+            return new Result(table, pity, target, players, rollsPerPlayer, tally.perkCounts, tally.guaranteed,
+                    tally.rollsToHit, tally.unfinished, pool.getParallelism(), System.currentTimeMillis() - start);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Same pity rules as live rolls (PerkManager.rollBatch), starting from empty counters
+    private void simulatePlayer(SplittableRandom random, int rolls, Tally tally) {
+        long state = 0L;
+        int sinceHit = 0;
+        for (int roll = 0; roll < rolls; roll++) {
+            sinceHit++;
+            String forced = pity.forcedCategory(state, random);
+            int index = table.rollIndex(random, forced);
+            tally.perkCounts[index]++;
+
+            String category = table.getPerk(index).getCategory();
+            if (category.equals(forced)) {
+                tally.guaranteed++;
+            }
+            state = pity.record(state, category);
+            if (hitPerk[index]) {
+                tally.rollsToHit[Math.min(sinceHit, histogramSize - 1)]++;
+                sinceHit = 0;
+            }
+        }
+        if (sinceHit > 0) {
+            tally.unfinished++;
+        }
+    }
+
+    // Standalone entry point, run against the plugin jar plus a server jar for the Bukkit API:
+    // java -cp EdToolsPerks.jar:paper.jar com.edtools.edtoolsperks.perks.RollSimulator <plugin folder> <rolls per player> [players] [tool] [seed]
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: RollSimulator <plugin folder> <rolls per player> [players] [tool|all] [seed]");
+            System.exit(1);
+        }
+
+        File folder = new File(args[0]);
+        int rolls = Integer.parseInt(args[1]);
+        int players = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        String tool = args.length > 3 && !args[3].equalsIgnoreCase("all") ? args[3] : null;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 0L;
+
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(new File(folder, "config.yml"));
+        YamlConfiguration perksConfig = YamlConfiguration.loadConfiguration(new File(folder, "perks.yml"));
+        PerkRegistry registry = new PerkLoader(config, message -> System.out.println(message.replaceAll("&[0-9a-fk-or]", "")))
+                .load(perksConfig);
+        if (registry == null) {
+            System.exit(1);
+        }
+
+        DropTable table = tool != null ? registry.getToolTable(tool) : registry.getGlobalTable();
+        if (table == null || table.isEmpty()) {
+            System.out.println("No perks for tool '" + tool + "'");
+            System.exit(1);
+        }
+
+        RollSimulator simulator = new RollSimulator(table, registry.getPity());
+        Result result = simulator.run(players, rolls, Runtime.getRuntime().availableProcessors(), seed);
+        result.format(Integer.MAX_VALUE).forEach(System.out::println);
+    }
+}
@@ -0,0 +1,117 @@
+package com.edtools.edtoolsperks.profile;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+// In-memory copy of a player's row in `players`, loaded on join.
+// Roll counters keep their unflushed change as a delta so a flush adds to the
+// stored value instead of overwriting writes made elsewhere (e.g. admin commands).
+// Pity counters (packed, see PityEngine) only change in memory while the player is online,
+// so they are written back whole.
+public class PlayerProfile {
+
+    public record Changes(int rollsDelta, int totalRollsDelta, boolean pityDirty, long pityState) {
+        public boolean isEmpty() {
+            return rollsDelta == 0 && totalRollsDelta == 0 && !pityDirty;
+        }
+    }
+
+    private final UUID uuid;
+    private final String username;
+
+    private int currentRolls;
+    private int totalRolls;
+    private long pityState;
+
+    private int pendingRolls;
+    private int pendingTotalRolls;
+    private boolean pityDirty;
+
+    // Writes for one profile run one after another, never concurrently
+    CompletableFuture<Void> writeChain = CompletableFuture.completedFuture(null);
+
+    public PlayerProfile(UUID uuid, String username, int currentRolls, int totalRolls, long pityState) {
+        this.uuid = uuid;
+        this.username = username;
+        this.currentRolls = currentRolls;
+        this.totalRolls = totalRolls;
+        this.pityState = pityState;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public synchronized int getCurrentRolls() {
+        return currentRolls;
+    }
+
+    public synchronized int getTotalRolls() {
+        return totalRolls;
+    }
+
+    public synchronized long getPityState() {
+        return pityState;
+    }
+
+    public synchronized void addRolls(int amount) {
+        currentRolls += amount;
+        pendingRolls += amount;
+    }
+
+    public synchronized void setCurrentRolls(int rolls) {
+        addRolls(rolls - currentRolls);
+    }
+
+    public synchronized void addTotalRolls(int amount) {
+        totalRolls += amount;
+        pendingTotalRolls += amount;
+    }
+
+    public synchronized void setPityState(long state) {
+        if (state != pityState) {
+            pityState = state;
+            pityDirty = true;
+        }
+    }
+
+    public synchronized boolean isDirty() {
+        return pendingRolls != 0 || pendingTotalRolls != 0 || pityDirty;
+    }
+
+    // Hands the unflushed changes to the caller and clears them
+    public synchronized Changes drainChanges() {
+        Changes changes = new Changes(pendingRolls, pendingTotalRolls, pityDirty, pityState);
+        pendingRolls = 0;
+        pendingTotalRolls = 0;
+        pityDirty = false;
+        return changes;
+    }
+
+    // Takes the stored values as the new base, keeping changes made after the last drain
+    public synchronized void syncFromDatabase(int storedRolls, int storedTotalRolls) {
+        currentRolls = storedRolls + pendingRolls;
+        totalRolls = storedTotalRolls + pendingTotalRolls;
+    }
+
+    // Same, also taking the stored pity counters unless newer ones are waiting to be flushed
+    public synchronized void syncFromDatabase(int storedRolls, int storedTotalRolls, long storedPity) {
+        syncFromDatabase(storedRolls, storedTotalRolls);
+        if (!pityDirty) {
+            pityState = storedPity;
+        }
+    }
+
+    // Puts back changes whose flush failed so the next flush retries them
+    public synchronized void restoreChanges(Changes changes) {
+        pendingRolls += changes.rollsDelta();
+        pendingTotalRolls += changes.totalRollsDelta();
+        if (changes.pityDirty()) {
+            pityDirty = true;
+        }
+    }
+}
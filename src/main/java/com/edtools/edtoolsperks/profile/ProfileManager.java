@@ -0,0 +1,243 @@
+package com.edtools.edtoolsperks.profile;
+
+import com.edtools.edtoolsperks.EdToolsPerks;
+import com.edtools.edtoolsperks.database.DatabaseManager;
+import com.edtools.edtoolsperks.database.RollSettlement;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Keeps a PlayerProfile for every online player so GUI opens and roll clicks
+// read fields instead of querying H2. Changes are flushed on a timer and on quit/shutdown.
+public class ProfileManager {
+
+    private final EdToolsPerks plugin;
+    private final DatabaseManager databaseManager;
+    private final Map<UUID, PlayerProfile> profiles = new ConcurrentHashMap<>();
+    // Quit-time flushes still running; a rejoin waits for them before reading the row
+    private final Map<UUID, CompletableFuture<Void>> pendingUnloads = new ConcurrentHashMap<>();
+    private BukkitTask flushTask;
+
+    public ProfileManager(EdToolsPerks plugin) {
+        this.plugin = plugin;
+        this.databaseManager = plugin.getDatabaseManager();
+    }
+
+    public void start() {
+        long intervalSeconds = plugin.getConfigManager().getConfig().getLong("database.profiles.flush-interval-seconds", 30L);
+        long periodTicks = Math.max(20L, intervalSeconds * 20L);
+        flushTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                flushDirty();
+            }
+        }.runTaskTimerAsynchronously(plugin, periodTicks, periodTicks);
+
+        // Players already online after a /reload
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            loadProfile(player);
+        }
+    }
+
+    // Loads (and creates if needed) the player's row; new players get their starting rolls
+    public CompletableFuture<PlayerProfile> loadProfile(Player player) {
+        UUID uuid = player.getUniqueId();
+        boolean firstJoin = !player.hasPlayedBefore();
+
+        // After a quick quit and rejoin the old profile's flush may still be queued; reading before it
+        // lands would bring back rolls that were already spent
+        CompletableFuture<Void> pending = pendingUnloads.getOrDefault(uuid, CompletableFuture.completedFuture(null));
+        return pending.handle((ignored, throwable) -> null)
+                .thenCompose(ignored -> databaseManager.loadPlayerProfile(uuid, player.getName())).thenApply(profile -> {
+            // Give some initial rolls for new players
+            if (firstJoin) {
+                profile.setCurrentRolls(5);
+            }
+            profiles.put(uuid, profile);
+            // Quit before the load finished: save what we have and drop it again
+            if (!player.isOnline()) {
+                unload(uuid);
+            }
+            return profile;
+        }).exceptionally(throwable -> {
+            plugin.getLogger().severe("Could not load profile for " + player.getName() + ": " + throwable.getMessage());
+            return null;
+        });
+    }
+
+    // Returns null while the profile is still loading or the player is offline
+    public PlayerProfile getProfile(UUID uuid) {
+        return profiles.get(uuid);
+    }
+
+    public boolean isLoaded(UUID uuid) {
+        return profiles.containsKey(uuid);
+    }
+
+    // Works for offline players too: falls back to a direct update when nothing is cached
+    public CompletableFuture<Void> addRolls(UUID uuid, int amount) {
+        PlayerProfile profile = profiles.get(uuid);
+        if (profile == null) {
+            return databaseManager.addPlayerRolls(uuid, amount);
+        }
+        profile.addRolls(amount);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public CompletableFuture<Void> setRolls(UUID uuid, int rolls) {
+        PlayerProfile profile = profiles.get(uuid);
+        if (profile == null) {
+            return databaseManager.setPlayerRolls(uuid, rolls);
+        }
+        profile.setCurrentRolls(rolls);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Gives back rolls that were paid for but could not be drawn
+    public CompletableFuture<Void> refundRolls(UUID uuid, int amount) {
+        PlayerProfile profile = profiles.get(uuid);
+        if (profile == null) {
+            return databaseManager.addPlayerRolls(uuid, amount);
+        }
+        profile.addRolls(amount);
+        profile.addTotalRolls(-amount);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public CompletableFuture<Void> setPityState(UUID uuid, long state) {
+        PlayerProfile profile = profiles.get(uuid);
+        if (profile == null) {
+            return databaseManager.setPityState(uuid, state);
+        }
+        profile.setPityState(state);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Runs the roll payment after any queued flush for this player, carrying unflushed changes along
+    public CompletableFuture<RollSettlement> settleRolls(UUID uuid, int rollCount) {
+        PlayerProfile profile = profiles.get(uuid);
+        if (profile == null) {
+            return databaseManager.settleRolls(uuid, rollCount, null);
+        }
+
+        synchronized (profile) {
+            CompletableFuture<RollSettlement> result = profile.writeChain.thenCompose(ignored -> {
+                PlayerProfile.Changes changes = profile.drainChanges();
+                return databaseManager.settleRolls(uuid, rollCount, changes).whenComplete((settlement, throwable) -> {
+                    if (throwable != null) {
+                        profile.restoreChanges(changes);
+                    } else {
+                        profile.syncFromDatabase(settlement.currentRolls(), settlement.totalRolls());
+                    }
+                });
+            });
+            profile.writeChain = result.handle((settlement, throwable) -> null);
+            return result;
+        }
+    }
+
+    public CompletableFuture<Void> flush(PlayerProfile profile) {
+        synchronized (profile) {
+            // Changes are taken when the write actually runs, so queued flushes coalesce
+            profile.writeChain = profile.writeChain.thenCompose(ignored -> {
+                PlayerProfile.Changes changes = profile.drainChanges();
+                if (changes.isEmpty()) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                return databaseManager.savePlayerChanges(profile.getUuid(), changes).exceptionally(throwable -> {
+                    profile.restoreChanges(changes);
+                    return null;
+                });
+            });
+            return profile.writeChain;
+        }
+    }
+
+    public int flushDirty() {
+        int flushed = 0;
+        for (PlayerProfile profile : profiles.values()) {
+            if (profile.isDirty()) {
+                flush(profile);
+                flushed++;
+            }
+        }
+        return flushed;
+    }
+
+    // Completes once every loaded profile's pending changes are written
+    public CompletableFuture<Void> flushAll() {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (PlayerProfile profile : profiles.values()) {
+            pending.add(flush(profile));
+        }
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]));
+    }
+
+    // Re-reads loaded profiles after their rows changed outside the profile (e.g. /etp import).
+    // Changes made since are kept on top of the new values.
+    public void refreshAll() {
+        for (PlayerProfile profile : profiles.values()) {
+            synchronized (profile) {
+                profile.writeChain = profile.writeChain
+                        .thenCompose(ignored -> databaseManager.loadPlayerProfile(profile.getUuid(), profile.getUsername()))
+                        .thenAccept(stored -> profile.syncFromDatabase(stored.getCurrentRolls(), stored.getTotalRolls(), stored.getPityState()))
+                        .exceptionally(throwable -> {
+                            plugin.getLogger().severe("Could not refresh profile for " + profile.getUsername() + ": " + throwable.getMessage());
+                            return null;
+                        });
+            }
+        }
+    }
+
+    public void unload(UUID uuid) {
+        PlayerProfile profile = profiles.get(uuid);
+        if (profile == null) {
+            return;
+        }
+        // Registered before the profile leaves the map, so a concurrent loadProfile always finds one or the other
+        CompletableFuture<Void> flushed = flush(profile);
+        pendingUnloads.put(uuid, flushed);
+        profiles.remove(uuid, profile);
+        flushed.whenComplete((ignored, throwable) -> pendingUnloads.remove(uuid, flushed));
+    }
+
+    public int getLoadedCount() {
+        return profiles.size();
+    }
+
+    public int getDirtyCount() {
+        int dirty = 0;
+        for (PlayerProfile profile : profiles.values()) {
+            if (profile.isDirty()) {
+                dirty++;
+            }
+        }
+        return dirty;
+    }
+
+    // Called before the database shuts down so every pending change reaches disk
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+
+        List<CompletableFuture<Void>> flushes = new ArrayList<>(pendingUnloads.values());
+        flushes.add(flushAll());
+        CompletableFuture<Void> pending = CompletableFuture.allOf(flushes.toArray(new CompletableFuture[0]));
+        profiles.clear();
+
+        try {
+            pending.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            plugin.getLogger().severe("Could not flush all player profiles on shutdown: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.edtools.edtoolsperks.utils;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ConfigUtils {
+
+    // Every leaf value under the section, keyed by its full relative path. Two sections with equal
+    // fingerprints load into the same perk / GUI, which is how a file reload skips unchanged ones.
+    public static Map<String, Object> fingerprint(ConfigurationSection section) {
+        Map<String, Object> values = new HashMap<>();
+        if (section != null) {
+            section.getValues(true).forEach((key, value) -> {
+                if (!(value instanceof ConfigurationSection)) {
+                    values.put(key, value);
+                }
+            });
+        }
+        return values;
+    }
+}
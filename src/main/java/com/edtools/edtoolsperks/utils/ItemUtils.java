@@ -23,7 +23,11 @@ public class ItemUtils {
             mat = Material.STONE;
         }
 
-        ItemStack item = new ItemStack(mat);
+        return createItem(mat, name, lore);
+    }
+
+    public static ItemStack createItem(Material material, String name, String[] lore) {
+        ItemStack item = new ItemStack(material);
         ItemMeta meta = item.getItemMeta();
         
         if (meta != null) {
@@ -0,0 +1,178 @@
+package com.edtools.edtoolsperks.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DataTransferTest {
+
+    private static final Logger LOGGER = Logger.getLogger("DataTransferTest");
+    private static final int PAGE_SIZE = 4;
+
+    @TempDir
+    File folder;
+
+    private final List<ConnectionPool> pools = new ArrayList<>();
+    private UUID player;
+    private DataTransfer source;
+
+    @BeforeEach
+    void fillSource() throws SQLException {
+        source = open("source");
+        player = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        ConnectionPool pool = pools.get(0);
+        PlayerRepository players = new PlayerRepository(SqlDialect.H2);
+        ToolPerkRepository toolPerks = new ToolPerkRepository(SqlDialect.H2);
+        RollHistoryRepository history = new RollHistoryRepository(SqlDialect.H2);
+        try (Connection conn = pool.getConnection()) {
+            players.upsertBatch(conn, List.of(
+                    new PlayerRepository.Snapshot(player, "Steve", 7, 40, 0x0003_0012L),
+                    new PlayerRepository.Snapshot(other, "Alex", 0, 1, 0L)));
+            toolPerks.save(conn, new ToolPerkRecord("tool-1", "fortune", 3), player);
+
+            List<RollHistoryJournal.Entry> rolls = new ArrayList<>();
+            // A seedless multi-roll of identical rows (older rows have no seed) that crosses a batch boundary
+            for (int i = 0; i < 6; i++) {
+                rolls.add(new RollHistoryJournal.Entry(player, "haste", 1, "comun", false, 1_700_000_000_123L, null, null));
+            }
+            for (int i = 0; i < 5; i++) {
+                rolls.add(new RollHistoryJournal.Entry(player, "fortune", 2, "rara", i == 4, 1_700_000_100_000L + i, (long) i, "pickaxe"));
+            }
+            rolls.add(new RollHistoryJournal.Entry(other, "fortune", 1, "morada", true, 1_700_000_200_000L, 99L, "all"));
+            history.insertBatch(conn, rolls);
+        }
+    }
+
+    @AfterEach
+    void closePools() {
+        pools.forEach(ConnectionPool::close);
+    }
+
+    private DataTransfer open(String name) throws SQLException {
+        EmbeddedH2StorageProvider provider = new EmbeddedH2StorageProvider(folder, name);
+        ConnectionPool pool = new ConnectionPool(provider, new ConnectionPool.Settings(1, 2, 1000, 2, 0, false, 8), LOGGER);
+        pool.start();
+        pools.add(pool);
+        new SchemaMigrator(pool, provider.getDialect(), LOGGER).migrate();
+        return new DataTransfer(pool, new PlayerRepository(SqlDialect.H2), new ToolPerkRepository(SqlDialect.H2),
+                new RollHistoryRepository(SqlDialect.H2), PAGE_SIZE, LOGGER);
+    }
+
+    private static List<String> history(ConnectionPool pool) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT player_uuid, perk_name, perk_level, perk_category, was_guaranteed, " +
+                     "roll_time, roll_seed, tool_type FROM roll_history ORDER BY player_uuid, roll_time, perk_name, roll_seed")) {
+            while (rs.next()) {
+                rows.add(rs.getString(1) + "|" + rs.getString(2) + "|" + rs.getInt(3) + "|" + rs.getString(4) + "|"
+                        + rs.getBoolean(5) + "|" + rs.getTimestamp(6).getTime() + "|" + rs.getObject(7) + "|" + rs.getString(8));
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    void roundTripsEveryTable() throws Exception {
+        File file = new File(folder, "export.ndjson.gz");
+        DataTransfer.Report exported = source.export(file);
+        assertEquals(2, exported.players());
+        assertEquals(1, exported.toolPerks());
+        assertEquals(12, exported.rollHistory());
+
+        DataTransfer target = open("target");
+        ConnectionPool targetPool = pools.get(1);
+        List<String> imported = new ArrayList<>();
+        DataTransfer.Report report = target.importFrom(file, imported::add);
+
+        assertEquals(12, report.rollHistory());
+        assertEquals(0, report.rollHistorySkipped());
+        assertEquals(List.of("tool-1"), imported);
+        assertEquals(history(pools.get(0)), history(targetPool));
+        try (Connection conn = targetPool.getConnection()) {
+            PlayerRecord steve = new PlayerRepository(SqlDialect.H2).find(conn, player);
+            assertEquals(7, steve.currentRolls());
+            assertEquals(40, steve.totalRolls());
+            assertEquals(0x0003_0012L, steve.pityState());
+            assertEquals(new ToolPerkRecord("tool-1", "fortune", 3), new ToolPerkRepository(SqlDialect.H2).find(conn, "tool-1"));
+        }
+    }
+
+    @Test
+    void reimportDoesNotDuplicateHistory() throws Exception {
+        File file = new File(folder, "export.ndjson.gz");
+        source.export(file);
+        DataTransfer target = open("target");
+        target.importFrom(file, tool -> { });
+
+        DataTransfer.Report again = target.importFrom(file, tool -> { });
+        assertEquals(0, again.rollHistory());
+        assertEquals(12, again.rollHistorySkipped());
+        assertEquals(history(pools.get(0)), history(pools.get(1)));
+    }
+
+    // An import that failed half way left part of the history behind; running it again fills in the rest
+    @Test
+    void rerunAfterFailedImportAddsOnlyTheMissingRows() throws Exception {
+        File file = new File(folder, "export.ndjson.gz");
+        source.export(file);
+        File broken = new File(folder, "broken.ndjson.gz");
+        List<String> lines = readLines(file);
+        // Header, 2 players, 1 tool perk and the first 8 rolls, then a corrupt line
+        List<String> head = new ArrayList<>(lines.subList(0, 12));
+        head.add("{not json");
+        writeLines(broken, head);
+
+        DataTransfer target = open("target");
+        assertThrows(IOException.class, () -> target.importFrom(broken, tool -> { }));
+
+        DataTransfer.Report rerun = target.importFrom(file, tool -> { });
+        assertEquals(12, rerun.rollHistory() + rerun.rollHistorySkipped());
+        assertEquals(history(pools.get(0)), history(pools.get(1)));
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static void writeLines(File file, List<String> lines) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8))) {
+            for (String line : lines) {
+                out.write(line);
+                out.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.edtools.edtoolsperks.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseExecutorTest {
+
+    private static final Logger LOGGER = Logger.getLogger("DatabaseExecutorTest");
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private DatabaseExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown(1000);
+        }
+    }
+
+    // One worker, parked on the latch, and a queue of one that is already taken
+    private DatabaseExecutor saturated(DatabaseExecutor.RejectionPolicy policy, long blockTimeoutMs, boolean serverThread) throws InterruptedException {
+        executor = new DatabaseExecutor(1, 1, policy, blockTimeoutMs, () -> serverThread, LOGGER);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> { });
+        return executor;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void serverThreadIsRejectedWhateverThePolicy() throws InterruptedException {
+        for (DatabaseExecutor.RejectionPolicy policy : DatabaseExecutor.RejectionPolicy.values()) {
+            DatabaseExecutor full = saturated(policy, 5000, true);
+            long start = System.nanoTime();
+            assertThrows(RejectedExecutionException.class, () -> full.execute(() -> { }), policy.name());
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000, policy + " stalled the caller");
+            assertEquals(1, full.getStats().rejected());
+            full.shutdown(0);
+        }
+    }
+
+    @Test
+    void callerRunsOffTheServerThread() throws InterruptedException {
+        DatabaseExecutor full = saturated(DatabaseExecutor.RejectionPolicy.CALLER_RUNS, 0, false);
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        full.execute(() -> ranOn.set(Thread.currentThread()));
+        assertSame(Thread.currentThread(), ranOn.get());
+    }
+
+    @Test
+    void blockGivesUpAfterTheTimeout() throws InterruptedException {
+        DatabaseExecutor full = saturated(DatabaseExecutor.RejectionPolicy.BLOCK, 100, false);
+        assertThrows(RejectedExecutionException.class, () -> full.execute(() -> { }));
+    }
+
+    @Test
+    void blockWaitsForRoom() throws InterruptedException {
+        DatabaseExecutor full = saturated(DatabaseExecutor.RejectionPolicy.BLOCK, 5000, false);
+        new Thread(() -> {
+            sleep(50);
+            release.countDown();
+        }).start();
+
+        CountDownLatch ran = new CountDownLatch(1);
+        full.execute(ran::countDown);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void abortRejects() throws InterruptedException {
+        DatabaseExecutor full = saturated(DatabaseExecutor.RejectionPolicy.ABORT, 0, false);
+        assertThrows(RejectedExecutionException.class, () -> full.execute(() -> { }));
+    }
+
+    @Test
+    void nestedTasksRunInlineAndFailuresAreCounted() throws InterruptedException {
+        executor = new DatabaseExecutor(1, 1, DatabaseExecutor.RejectionPolicy.ABORT, 0, () -> false, LOGGER);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(() -> executor.execute(done::countDown));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.recordFailure();
+
+        DatabaseExecutor.Stats stats = executor.getStats();
+        assertEquals(1, stats.inline());
+        assertEquals(1, stats.failed());
+    }
+
+    @Test
+    void policyFromConfig() {
+        assertEquals(DatabaseExecutor.RejectionPolicy.CALLER_RUNS, DatabaseExecutor.RejectionPolicy.fromConfig(" caller-runs "));
+        assertEquals(DatabaseExecutor.RejectionPolicy.ABORT, DatabaseExecutor.RejectionPolicy.fromConfig("abort"));
+        assertEquals(DatabaseExecutor.RejectionPolicy.BLOCK, DatabaseExecutor.RejectionPolicy.fromConfig("nonsense"));
+        assertEquals(DatabaseExecutor.RejectionPolicy.BLOCK, DatabaseExecutor.RejectionPolicy.fromConfig(null));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.edtools.edtoolsperks.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryCompactorTest {
+
+    private static final Logger LOGGER = Logger.getLogger("HistoryCompactorTest");
+
+    @TempDir
+    File dataFolder;
+
+    private ConnectionPool pool;
+    private RollHistoryRepository repository;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        EmbeddedH2StorageProvider provider = new EmbeddedH2StorageProvider(dataFolder, "compact.db");
+        pool = new ConnectionPool(provider, new ConnectionPool.Settings(1, 2, 1000, 2, 0, false, 8), LOGGER);
+        pool.start();
+        new SchemaMigrator(pool, provider.getDialect(), LOGGER).migrate();
+        repository = new RollHistoryRepository(provider.getDialect());
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        pool.close();
+    }
+
+    @Test
+    void rollsOldRowsUpAndReportsTheSpaceTheyTook() throws SQLException {
+        UUID player = UUID.randomUUID();
+        long old = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(40);
+        List<RollHistoryJournal.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            entries.add(new RollHistoryJournal.Entry(player, "fortune", 1, i % 10 == 0 ? "morada" : "comun",
+                    i % 10 == 0, old, (long) i, "pickaxe"));
+        }
+        entries.add(new RollHistoryJournal.Entry(player, "fortune", 1, "comun", false, System.currentTimeMillis(), 1L, "pickaxe"));
+        try (Connection conn = pool.getConnection()) {
+            repository.insertBatch(conn, entries);
+        }
+
+        HistoryCompactor.Report report = new HistoryCompactor(pool, repository, LOGGER).compact(30, 1000, 0);
+
+        assertEquals(5000, report.rowsCompacted());
+        assertEquals(5, report.chunks());
+        assertTrue(report.tableBytesFreed() > 0, "freed " + report.tableBytesFreed());
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM roll_history")) {
+                rs.next();
+                assertEquals(1, rs.getInt(1));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT SUM(roll_count), SUM(guaranteed_count) FROM roll_history_daily")) {
+                rs.next();
+                assertEquals(5000, rs.getInt(1));
+                assertEquals(500, rs.getInt(2));
+            }
+        }
+    }
+
+    @Test
+    void nothingToCompactFreesNothing() throws SQLException {
+        HistoryCompactor.Report report = new HistoryCompactor(pool, repository, LOGGER).compact(30, 1000, 0);
+        assertEquals(0, report.rowsCompacted());
+        assertEquals(0, report.tableBytesFreed());
+    }
+}
@@ -0,0 +1,91 @@
+package com.edtools.edtoolsperks.database;
+
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Two pools against one local H2 TCP server stand in for two game servers sharing a database
+class NetworkStorageProviderTest {
+
+    private static final Logger LOGGER = Logger.getLogger("NetworkStorageProviderTest");
+
+    @TempDir
+    Path baseDir;
+
+    private Server server;
+    private NetworkStorageProvider provider;
+    private ConnectionPool first;
+    private ConnectionPool second;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = Server.createTcpServer("-tcpPort", "0", "-baseDir", baseDir.toString(), "-ifNotExists").start();
+        provider = new NetworkStorageProvider("jdbc:h2:tcp://localhost:" + server.getPort() + "/shared", "sa", "");
+        provider.loadDriver();
+        first = openPool();
+        second = openPool();
+    }
+
+    @AfterEach
+    void stopServer() {
+        first.close();
+        second.close();
+        server.stop();
+    }
+
+    private ConnectionPool openPool() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(provider, new ConnectionPool.Settings(1, 2, 1000, 2, 0, false, 8), LOGGER);
+        pool.start();
+        return pool;
+    }
+
+    @Test
+    void h2UrlUsesTheH2DialectWithoutMySqlMode() {
+        assertEquals(SqlDialect.H2, provider.getDialect());
+        assertFalse(provider.getName().toUpperCase().contains("MODE"));
+        assertEquals(SqlDialect.MYSQL, new NetworkStorageProvider("jdbc:mysql://localhost/db", "root", "").getDialect());
+    }
+
+    @Test
+    void migratesOnceAndSharesWritesBetweenServers() throws SQLException {
+        assertEquals(SchemaMigrator.getLatestVersion(), new SchemaMigrator(first, provider.getDialect(), LOGGER).migrate());
+        assertEquals(0, new SchemaMigrator(second, provider.getDialect(), LOGGER).migrate());
+
+        ToolPerkRepository tools = new ToolPerkRepository(provider.getDialect());
+        UUID owner = UUID.randomUUID();
+        try (Connection conn = first.getConnection()) {
+            tools.save(conn, new ToolPerkRecord("tool-1", "fortune", 1), owner);
+            tools.save(conn, new ToolPerkRecord("tool-1", "fortune", 3), owner);
+        }
+        try (Connection conn = second.getConnection()) {
+            assertEquals(new ToolPerkRecord("tool-1", "fortune", 3), tools.find(conn, "tool-1"));
+        }
+    }
+
+    @Test
+    void insertIfAbsentOnlyInsertsOnce() throws SQLException {
+        new SchemaMigrator(first, provider.getDialect(), LOGGER).migrate();
+        PlayerRepository players = new PlayerRepository(provider.getDialect());
+        UUID uuid = UUID.randomUUID();
+        try (Connection conn = first.getConnection()) {
+            assertEquals(1, players.insertIfAbsent(conn, uuid, "Steve"));
+            players.addRolls(conn, uuid, 5);
+        }
+        try (Connection conn = second.getConnection()) {
+            assertEquals(0, players.insertIfAbsent(conn, uuid, "Alex"));
+            assertEquals(0, players.ensureExists(conn, uuid));
+            assertEquals(5, players.find(conn, uuid).currentRolls());
+        }
+    }
+}
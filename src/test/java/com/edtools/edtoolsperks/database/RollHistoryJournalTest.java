@@ -0,0 +1,138 @@
+package com.edtools.edtoolsperks.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RollHistoryJournalTest {
+
+    private static final Logger LOGGER = Logger.getLogger("RollHistoryJournalTest");
+
+    @TempDir
+    File dataFolder;
+
+    private ConnectionPool pool;
+    private final UUID player = UUID.randomUUID();
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        EmbeddedH2StorageProvider provider = new EmbeddedH2StorageProvider(dataFolder, "journal.db");
+        pool = new ConnectionPool(provider, new ConnectionPool.Settings(1, 2, 1000, 2, 0, false, 8), LOGGER);
+        pool.start();
+        new SchemaMigrator(pool, provider.getDialect(), LOGGER).migrate();
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        pool.close();
+    }
+
+    private RollHistoryJournal journal(RollHistoryRepository repository) {
+        // Flushes run inline on the calling thread
+        return new RollHistoryJournal(pool, repository, Runnable::run, 10, LOGGER);
+    }
+
+    private RollHistoryJournal.Entry roll(String perk) {
+        return new RollHistoryJournal.Entry(player, perk, 1, "comun", false, System.currentTimeMillis(), 1L, "pickaxe");
+    }
+
+    private int rowCount() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM roll_history")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    void writesQueuedRowsInOneBatch() throws SQLException {
+        RollHistoryJournal journal = journal(new RollHistoryRepository(SqlDialect.H2));
+        for (int i = 0; i < 7; i++) {
+            journal.append(roll("fortune"));
+        }
+        journal.flushNow();
+
+        assertEquals(7, rowCount());
+        assertEquals(1, journal.getStats().flushes());
+        assertEquals(0, journal.getQueueDepth());
+    }
+
+    // perk_name is NOT NULL: the batch is rejected as bad data, so its rows are written one by one
+    // and only the bad one is dropped
+    @Test
+    void poisonRowIsDroppedAndTheRestWritten() throws SQLException {
+        RollHistoryJournal journal = journal(new RollHistoryRepository(SqlDialect.H2));
+        for (int i = 0; i < 7; i++) {
+            journal.append(roll(i == 3 ? null : "fortune"));
+        }
+        journal.flushNow();
+
+        assertEquals(6, rowCount());
+        RollHistoryJournal.Stats stats = journal.getStats();
+        assertEquals(6, stats.rowsWritten());
+        assertEquals(1, stats.dropped());
+        assertEquals(0, stats.queueDepth());
+    }
+
+    // A row that keeps failing for a reason that does not look like bad data is charged one attempt
+    // per pass in which other rows got through, and dropped at the fifth
+    @Test
+    void rowFailingOnItsOwnIsDroppedAfterMaxAttempts() throws SQLException {
+        RollHistoryRepository flaky = new RollHistoryRepository(SqlDialect.H2) {
+            @Override
+            public void insertBatch(Connection conn, List<RollHistoryJournal.Entry> entries) throws SQLException {
+                if (entries.stream().anyMatch(entry -> "flaky".equals(entry.perkName()))) {
+                    throw new SQLTransientException("lock timeout");
+                }
+                super.insertBatch(conn, entries);
+            }
+        };
+        RollHistoryJournal journal = journal(flaky);
+        journal.append(roll("flaky"));
+
+        int passes = 0;
+        while (journal.getStats().dropped() == 0 && passes < 20) {
+            journal.append(roll("fortune"));
+            journal.flushNow();
+            passes++;
+        }
+
+        assertEquals(1, journal.getStats().dropped());
+        assertEquals(0, journal.getQueueDepth());
+        assertEquals(passes, rowCount());
+        // Three whole-batch failures, then an isolation pass per attempt up to MAX_ATTEMPTS
+        assertEquals(5, passes);
+    }
+
+    // With the database unreachable nothing is ever charged or dropped
+    @Test
+    void outageKeepsEveryRow() {
+        RollHistoryJournal journal = journal(new RollHistoryRepository(SqlDialect.H2));
+        pool.close();
+        for (int i = 0; i < 5; i++) {
+            journal.append(roll("fortune"));
+        }
+        for (int i = 0; i < 10; i++) {
+            journal.flushNow();
+        }
+
+        RollHistoryJournal.Stats stats = journal.getStats();
+        assertEquals(5, stats.queueDepth());
+        assertEquals(0, stats.dropped());
+        assertEquals(0, stats.rowsWritten());
+    }
+}
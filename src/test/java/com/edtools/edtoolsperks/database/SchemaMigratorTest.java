@@ -0,0 +1,71 @@
+package com.edtools.edtoolsperks.database;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SchemaMigratorTest {
+
+    private static final Logger LOGGER = Logger.getLogger("SchemaMigratorTest");
+
+    @TempDir
+    File dataFolder;
+
+    // Databases made by builds before the migrator were created with MODE=MySQL DDL and have no schema_version
+    @Test
+    void upgradesPreMigratorDatabaseWithoutMySqlMode() throws Exception {
+        Class.forName("org.h2.Driver");
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:" + dataFolder.getAbsolutePath() + "/legacy.db;MODE=MySQL");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE players (uuid VARCHAR(36) PRIMARY KEY, username VARCHAR(16) NOT NULL, total_rolls INT DEFAULT 0, " +
+                    "current_rolls INT DEFAULT 0, pity_counter INT DEFAULT 0, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                    "last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute("CREATE TABLE tool_perks (id INT AUTO_INCREMENT PRIMARY KEY, tool_uuid VARCHAR(36) NOT NULL, owner_uuid VARCHAR(36) NOT NULL, " +
+                    "perk_name VARCHAR(50) NOT NULL, perk_level INT DEFAULT 1, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                    "UNIQUE KEY unique_tool_perk (tool_uuid, perk_name))");
+            stmt.execute("CREATE TABLE roll_history (id INT AUTO_INCREMENT PRIMARY KEY, player_uuid VARCHAR(36) NOT NULL, perk_name VARCHAR(50) NOT NULL, " +
+                    "perk_level INT NOT NULL, perk_category VARCHAR(20) NOT NULL, was_guaranteed BOOLEAN DEFAULT FALSE, " +
+                    "roll_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP, INDEX idx_player_uuid (player_uuid), INDEX idx_roll_time (roll_time))");
+            stmt.execute("INSERT INTO players (uuid, username, pity_counter) VALUES ('" + UUID.nameUUIDFromBytes(new byte[0]) + "', 'Steve', 70000)");
+        }
+
+        EmbeddedH2StorageProvider provider = new EmbeddedH2StorageProvider(dataFolder, "legacy.db");
+        ConnectionPool pool = new ConnectionPool(provider, new ConnectionPool.Settings(1, 1, 1000, 2, 0, false, 8), LOGGER);
+        pool.start();
+        try {
+            SchemaMigrator migrator = new SchemaMigrator(pool, provider.getDialect(), LOGGER);
+            assertEquals(SchemaMigrator.getLatestVersion(), migrator.migrate());
+            assertEquals(SchemaMigrator.getLatestVersion(), migrator.getCurrentVersion());
+
+            PlayerRepository players = new PlayerRepository(provider.getDialect());
+            try (Connection conn = pool.getConnection()) {
+                // Counter clamped into the 16-bit first pity tier
+                assertEquals(65535L, players.find(conn, UUID.nameUUIDFromBytes(new byte[0])).pityState());
+            }
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void freshDatabaseGetsEveryMigration() throws SQLException {
+        EmbeddedH2StorageProvider provider = new EmbeddedH2StorageProvider(dataFolder, "fresh.db");
+        ConnectionPool pool = new ConnectionPool(provider, new ConnectionPool.Settings(1, 1, 1000, 2, 0, false, 8), LOGGER);
+        pool.start();
+        try {
+            assertEquals(SchemaMigrator.getLatestVersion(), new SchemaMigrator(pool, provider.getDialect(), LOGGER).migrate());
+            assertEquals(0, new SchemaMigrator(pool, provider.getDialect(), LOGGER).migrate());
+        } finally {
+            pool.close();
+        }
+    }
+}
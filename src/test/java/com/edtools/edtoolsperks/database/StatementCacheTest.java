@@ -0,0 +1,136 @@
+package com.edtools.edtoolsperks.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementCacheTest {
+
+    private static final String A = "SELECT 1";
+    private static final String B = "SELECT 2";
+    private static final String C = "SELECT 3";
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private Connection connection;
+    private StatementCache cache;
+
+    @BeforeEach
+    void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:");
+        cache = new StatementCache(connection, 2, hits, misses);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        cache.close();
+        connection.close();
+    }
+
+    // The H2 statement behind a handed-out proxy
+    private static PreparedStatement raw(PreparedStatement statement) throws SQLException {
+        return statement.unwrap(PreparedStatement.class);
+    }
+
+    private static int queryInt(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    void reusesClosedStatements() throws SQLException {
+        PreparedStatement first;
+        try (PreparedStatement stmt = cache.prepare(A)) {
+            first = raw(stmt);
+            assertEquals(1, queryInt(stmt));
+        }
+        try (PreparedStatement stmt = cache.prepare(A)) {
+            assertSame(first, raw(stmt));
+            assertEquals(1, queryInt(stmt));
+        }
+
+        assertFalse(first.isClosed());
+        assertEquals(1, hits.sum());
+        assertEquals(1, misses.sum());
+    }
+
+    @Test
+    void returnedProxyRejectsFurtherUse() throws SQLException {
+        PreparedStatement stmt = cache.prepare(A);
+        stmt.close();
+        assertTrue(stmt.isClosed());
+        assertThrows(SQLException.class, stmt::executeQuery);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws SQLException {
+        PreparedStatement a;
+        PreparedStatement b;
+        try (PreparedStatement stmt = cache.prepare(A)) {
+            a = raw(stmt);
+        }
+        try (PreparedStatement stmt = cache.prepare(B)) {
+            b = raw(stmt);
+        }
+        // Touch A so B becomes the eldest
+        cache.prepare(A).close();
+        cache.prepare(C).close();
+
+        assertTrue(b.isClosed());
+        assertFalse(a.isClosed());
+        try (PreparedStatement stmt = cache.prepare(B)) {
+            assertNotSame(b, raw(stmt));
+        }
+        assertEquals(1, hits.sum());
+        assertEquals(4, misses.sum());
+    }
+
+    // Same SQL opened again before the first one is closed: the inner caller gets its own statement
+    @Test
+    void nestedUseOfSameSqlGetsThrowawayStatement() throws SQLException {
+        try (PreparedStatement outer = cache.prepare(A)) {
+            PreparedStatement inner = cache.prepare(A);
+            assertNotSame(raw(outer), inner);
+            assertEquals(1, queryInt(inner));
+            inner.close();
+            assertTrue(inner.isClosed());
+            assertEquals(1, queryInt(outer));
+        }
+
+        assertEquals(2, misses.sum());
+        try (PreparedStatement again = cache.prepare(A)) {
+            assertEquals(1, queryInt(again));
+        }
+        assertEquals(1, hits.sum());
+    }
+
+    // An entry evicted while borrowed stays usable and is closed once it comes back
+    @Test
+    void evictionWhileInUseClosesOnReturn() throws SQLException {
+        PreparedStatement borrowed = cache.prepare(A);
+        PreparedStatement a = raw(borrowed);
+        cache.prepare(B).close();
+        cache.prepare(C).close();
+
+        assertFalse(a.isClosed());
+        assertEquals(1, queryInt(borrowed));
+        borrowed.close();
+        assertTrue(a.isClosed());
+    }
+}
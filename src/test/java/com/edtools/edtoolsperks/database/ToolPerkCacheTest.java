@@ -0,0 +1,48 @@
+package com.edtools.edtoolsperks.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ToolPerkCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedAndCachesMissingPerks() {
+        ToolPerkCache cache = new ToolPerkCache(2);
+        cache.put("a", new ToolPerkRecord("a", "fortune", 1));
+        cache.put("b", null);
+        cache.get("a");
+        cache.put("c", new ToolPerkRecord("c", "haste", 2));
+
+        assertNull(cache.get("b"));
+        assertEquals(Optional.of(new ToolPerkRecord("a", "fortune", 1)), cache.get("a"));
+        assertEquals(1, cache.getStats().evictions());
+
+        cache.put("d", null);
+        assertEquals(Optional.empty(), cache.get("d"));
+        assertEquals(1, cache.getStats().negativeHits());
+    }
+
+    // A failed write invalidates its entry; that has to reach pinned (online) tools too,
+    // which the LRU would otherwise never drop
+    @Test
+    void invalidateDropsPinnedEntries() {
+        ToolPerkCache cache = new ToolPerkCache(8);
+        UUID owner = UUID.randomUUID();
+        cache.pin(owner, List.of(new ToolPerkRecord("tool", "fortune", 1)));
+        cache.put("tool", new ToolPerkRecord("tool", "fortune", 3));
+
+        cache.invalidate("tool");
+        assertNull(cache.get("tool"));
+
+        cache.putIfAbsent("tool", new ToolPerkRecord("tool", "fortune", 1));
+        assertEquals(Optional.of(new ToolPerkRecord("tool", "fortune", 1)), cache.get("tool"));
+        cache.unpin(owner);
+        assertEquals(0, cache.getStats().pinned());
+    }
+}
@@ -0,0 +1,153 @@
+package com.edtools.edtoolsperks.integration;
+
+import com.edtools.edtoolsperks.perks.BoostType;
+import com.edtools.edtoolsperks.perks.Perk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ToolPerkDataTest {
+
+    private static final NamespacedKey DATA_KEY = new NamespacedKey("edtoolsperks", "perk_data");
+    private static final NamespacedKey PERK_KEY = new NamespacedKey("edtoolsperks", "perk_name");
+    private static final NamespacedKey LEVEL_KEY = new NamespacedKey("edtoolsperks", "perk_level");
+    private static final NamespacedKey[] BOOST_KEYS = BoostType.ALL.stream()
+            .map(type -> new NamespacedKey("edtoolsperks", type.getDataKey()))
+            .toArray(NamespacedKey[]::new);
+
+    private static double[] boosts(BoostType type, double amount) {
+        double[] boosts = new double[BoostType.ALL.size()];
+        boosts[type.ordinal()] = amount;
+        return boosts;
+    }
+
+    private static ToolPerkData decode(byte[] bytes) {
+        return ToolPerkData.TYPE.fromPrimitive(bytes, null);
+    }
+
+    // Map-backed container holding primitives, like the server's: typed reads go through the
+    // data type's fromPrimitive, so a bad tag fails the same way it does in game
+    @SuppressWarnings("unchecked")
+    private static PersistentDataContainer container(Map<NamespacedKey, Object> values) {
+        return (PersistentDataContainer) Proxy.newProxyInstance(ToolPerkDataTest.class.getClassLoader(),
+                new Class<?>[]{PersistentDataContainer.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "has" -> {
+                            return values.containsKey(args[0]);
+                        }
+                        case "get", "getOrDefault" -> {
+                            Object value = values.get(args[0]);
+                            if (value == null) {
+                                return args.length > 2 ? args[2] : null;
+                            }
+                            PersistentDataType<Object, Object> type = (PersistentDataType<Object, Object>) args[1];
+                            return type != null ? type.fromPrimitive(value, null) : value;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static ToolPerkData read(Map<NamespacedKey, Object> values) {
+        return ToolPerkData.read(container(values), DATA_KEY, PERK_KEY, LEVEL_KEY, BOOST_KEYS);
+    }
+
+    @Test
+    void roundTripsThroughTheTag() {
+        Perk.PerkLevel level = new Perk.PerkLevel("coin,money", "1.5,3");
+        Perk perk = new Perk("fortune", "Fortune", "", "morada", "pickaxe", 1, Map.of(2, level), null, List.of());
+        ToolPerkData data = ToolPerkData.of(perk, 2);
+
+        ToolPerkData decoded = decode(ToolPerkData.TYPE.toPrimitive(data, null));
+        assertEquals("fortune", decoded.perkId());
+        assertEquals(2, decoded.level());
+        assertArrayEquals(data.boosts(), decoded.boosts());
+        assertEquals(1.5, decoded.getBoost(BoostType.COIN));
+        assertEquals(3.0, decoded.getBoost(BoostType.MONEY));
+        assertEquals(0.0, decoded.getBoost(BoostType.ORB));
+    }
+
+    @Test
+    void skipsBoostsThisVersionDoesNotKnow() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(ToolPerkData.SCHEMA_VERSION);
+            out.writeUTF("fortune");
+            out.writeInt(3);
+            out.writeByte(2);
+            out.writeUTF("laser");
+            out.writeDouble(9.0);
+            out.writeUTF("coin");
+            out.writeDouble(2.0);
+        }
+
+        ToolPerkData decoded = decode(bytes.toByteArray());
+        assertArrayEquals(boosts(BoostType.COIN, 2.0), decoded.boosts());
+    }
+
+    @Test
+    void rejectsUnknownVersionAndTruncatedTags() {
+        byte[] valid = ToolPerkData.TYPE.toPrimitive(new ToolPerkData("fortune", 1, boosts(BoostType.ORB, 4.0)), null);
+        byte[] future = valid.clone();
+        future[0] = (byte) (ToolPerkData.SCHEMA_VERSION + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> decode(future));
+        assertThrows(IllegalArgumentException.class, () -> decode(Arrays.copyOf(valid, valid.length - 3)));
+        assertThrows(IllegalArgumentException.class, () -> decode(new byte[0]));
+    }
+
+    @Test
+    void readsPerkDataBeforeLegacyKeys() {
+        Map<NamespacedKey, Object> values = new HashMap<>();
+        values.put(DATA_KEY, ToolPerkData.TYPE.toPrimitive(new ToolPerkData("fortune", 3, boosts(BoostType.PASS, 1.0)), null));
+        values.put(PERK_KEY, "haste");
+        values.put(LEVEL_KEY, 1);
+
+        ToolPerkData data = read(values);
+        assertEquals("fortune", data.perkId());
+        assertEquals(3, data.level());
+    }
+
+    // Tools written before perk_data existed only have the separate keys
+    @Test
+    void fallsBackToLegacyKeys() {
+        Map<NamespacedKey, Object> values = new HashMap<>();
+        values.put(PERK_KEY, "haste");
+        values.put(LEVEL_KEY, 2);
+        values.put(BOOST_KEYS[BoostType.CROPS.ordinal()], 0.25);
+
+        ToolPerkData data = read(values);
+        assertEquals("haste", data.perkId());
+        assertEquals(2, data.level());
+        assertArrayEquals(boosts(BoostType.CROPS, 0.25), data.boosts());
+
+        values.remove(LEVEL_KEY);
+        assertNull(read(values));
+        assertNull(read(new HashMap<>()));
+    }
+
+    @Test
+    void unreadablePerkDataIsReported() {
+        Map<NamespacedKey, Object> values = new HashMap<>();
+        values.put(DATA_KEY, new byte[]{(byte) 99});
+        values.put(PERK_KEY, "haste");
+        values.put(LEVEL_KEY, 2);
+
+        assertThrows(IllegalArgumentException.class, () -> read(values));
+    }
+}
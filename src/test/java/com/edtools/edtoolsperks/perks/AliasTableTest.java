@@ -0,0 +1,71 @@
+package com.edtools.edtoolsperks.perks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AliasTableTest {
+
+    private static final int DRAWS = 200_000;
+
+    private static int[] draw(AliasTable<Double> table, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] counts = new int[table.size()];
+        for (int i = 0; i < DRAWS; i++) {
+            counts[table.sampleIndex(random)]++;
+        }
+        return counts;
+    }
+
+    @Test
+    void drawsInProportionToWeight() {
+        List<Double> weights = List.of(1.0, 2.0, 3.0, 4.0);
+        int[] counts = draw(new AliasTable<>(weights, Double::doubleValue), 1L);
+        for (int i = 0; i < weights.size(); i++) {
+            double expected = weights.get(i) / 10.0;
+            assertEquals(expected, counts[i] / (double) DRAWS, 0.01, "item " + i);
+        }
+    }
+
+    @Test
+    void neverDrawsZeroOrNegativeWeights() {
+        List<Double> weights = List.of(0.0, 5.0, -3.0, 1.0, 0.0);
+        int[] counts = draw(new AliasTable<>(weights, Double::doubleValue), 2L);
+        assertEquals(0, counts[0]);
+        assertEquals(0, counts[2]);
+        assertEquals(0, counts[4]);
+        assertEquals(5.0 / 6.0, counts[1] / (double) DRAWS, 0.01);
+        assertEquals(1.0 / 6.0, counts[3] / (double) DRAWS, 0.01);
+    }
+
+    @Test
+    void allZeroWeightsFallBackToUniform() {
+        List<Double> weights = List.of(0.0, -1.0, 0.0);
+        int[] counts = draw(new AliasTable<>(weights, Double::doubleValue), 3L);
+        for (int count : counts) {
+            assertEquals(1.0 / 3.0, count / (double) DRAWS, 0.01);
+        }
+    }
+
+    @Test
+    void singleItemIsAlwaysDrawn() {
+        AliasTable<String> table = new AliasTable<>(List.of("only"), item -> 0.5);
+        SplittableRandom random = new SplittableRandom(4L);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("only", table.sample(random));
+        }
+    }
+
+    @Test
+    void emptyTableDrawsNothing() {
+        AliasTable<String> table = new AliasTable<>(List.of(), item -> 1.0);
+        assertTrue(table.isEmpty());
+        assertEquals(-1, table.sampleIndex(new SplittableRandom(5L)));
+        assertNull(table.sample(new SplittableRandom(5L)));
+    }
+}
@@ -0,0 +1,85 @@
+package com.edtools.edtoolsperks.perks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerkRegistryTest {
+
+    private static Perk perk(String id, String category, String tool, double chance) {
+        return new Perk(id, id, "", category, tool, chance, Map.of(), null, List.of());
+    }
+
+    private static PerkRegistry registry(Map<String, Perk> perks) {
+        Map<String, PerkCategoryConfig> categories = new LinkedHashMap<>();
+        categories.put("verde", new PerkCategoryConfig("verde", "Verde", "&a", null));
+        categories.put("morada", new PerkCategoryConfig("morada", "Morada", "&5", null));
+        return new PerkRegistry(perks, categories, PityEngine.NONE, Map.of());
+    }
+
+    private static Map<String, Perk> perks() {
+        Map<String, Perk> perks = new LinkedHashMap<>();
+        perks.put("haste", perk("haste", "verde", "Pickaxe", 10));
+        perks.put("fortune", perk("fortune", "morada", "pickaxe", 1));
+        perks.put("looting", perk("looting", "verde", "sword", 5));
+        return perks;
+    }
+
+    @Test
+    void groupsPerksByToolAndCategory() {
+        PerkRegistry registry = registry(perks());
+
+        assertEquals(3, registry.size());
+        assertEquals(List.of("haste", "fortune"), registry.getToolTable("PICKAXE").getPerks().stream().map(Perk::getId).toList());
+        assertNull(registry.getToolTable("axe"));
+        assertEquals(3, registry.getGlobalTable().getPerks().size());
+        assertEquals(List.of("haste", "looting"), registry.getPerksByCategory("verde").stream().map(Perk::getId).toList());
+        assertEquals(List.of(), registry.getPerksByCategory("dorada"));
+        // Unknown categories fall back to verde
+        assertSame(registry.getCategory("verde"), registry.getCategory("dorada"));
+    }
+
+    // A registry is a snapshot: later changes to the maps it was built from do not show through
+    @Test
+    void isUnaffectedByItsSourceMaps() {
+        Map<String, Perk> perks = perks();
+        PerkRegistry registry = registry(perks);
+        perks.clear();
+
+        assertEquals(3, registry.size());
+        assertThrows(UnsupportedOperationException.class, () -> registry.getAllPerks().clear());
+        assertThrows(UnsupportedOperationException.class, () -> registry.getPerksByCategory("verde").clear());
+    }
+
+    @Test
+    void forcedCategoryFallsBackToWeightedRoll() {
+        DropTable table = registry(perks()).getToolTable("pickaxe");
+        SplittableRandom random = new SplittableRandom(7L);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("fortune", table.getPerk(table.rollIndex(random, "morada")).getId());
+        }
+
+        // No dorada perk on pickaxes: every index is still a valid perk
+        for (int i = 0; i < 100; i++) {
+            int index = table.rollIndex(random, "dorada");
+            assertTrue(index == 0 || index == 1);
+        }
+        assertEquals(-1, table.rollIndexFromCategory("dorada", random));
+    }
+
+    @Test
+    void emptyRegistryRollsNothing() {
+        assertTrue(PerkRegistry.EMPTY.getGlobalTable().isEmpty());
+        assertNull(DropTable.EMPTY.roll(new SplittableRandom(1L)));
+        assertEquals(-1, DropTable.EMPTY.rollIndex(new SplittableRandom(1L), "morada"));
+    }
+}
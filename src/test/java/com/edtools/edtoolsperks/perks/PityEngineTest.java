@@ -0,0 +1,98 @@
+package com.edtools.edtoolsperks.perks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PityEngineTest {
+
+    private static final PityEngine ENGINE = new PityEngine(List.of(
+            new PityEngine.Tier("rara", 5, 0.25, 10),
+            new PityEngine.Tier("morada", 0, 0.0, 50)));
+
+    // Always draws the given value from nextDouble(); fails the test if anything else is asked for
+    private static RandomGenerator fixed(double value) {
+        return new RandomGenerator() {
+            @Override
+            public long nextLong() {
+                throw new AssertionError("only nextDouble() is expected");
+            }
+
+            @Override
+            public double nextDouble() {
+                return value;
+            }
+        };
+    }
+
+    private static final RandomGenerator NO_RANDOMNESS = new RandomGenerator() {
+        @Override
+        public long nextLong() {
+            throw new AssertionError("hard pity must not consume randomness");
+        }
+    };
+
+    @Test
+    void softChanceStartsAfterSoftStartAndCapsAtOne() {
+        PityEngine.Tier tier = new PityEngine.Tier("rara", 5, 0.25, 10);
+        assertEquals(0.0, tier.softChance(5));
+        assertEquals(0.25, tier.softChance(6));
+        assertEquals(0.75, tier.softChance(8));
+        assertEquals(1.0, tier.softChance(100));
+        assertEquals(0.0, new PityEngine.Tier("rara", 0, 0.25, 10).softChance(9));
+    }
+
+    @Test
+    void softPityForcesOnlyWhenTheDrawIsUnderTheChance() {
+        long state = ENGINE.setCount(0L, 0, 6);
+        // Roll 7: chance 0.5
+        assertEquals("rara", ENGINE.forcedCategory(state, fixed(0.49)));
+        assertNull(ENGINE.forcedCategory(state, fixed(0.5)));
+        assertNull(ENGINE.forcedCategory(ENGINE.setCount(0L, 0, 4), fixed(0.0)));
+    }
+
+    @Test
+    void hardPityWinsWithoutADrawAndTheRarestTierGoesFirst() {
+        assertEquals("rara", ENGINE.forcedCategory(ENGINE.setCount(0L, 0, 9), NO_RANDOMNESS));
+        long both = ENGINE.setCount(ENGINE.setCount(0L, 0, 9), 1, 49);
+        assertEquals("morada", ENGINE.forcedCategory(both, NO_RANDOMNESS));
+        assertEquals("morada", ENGINE.getTopTier().category());
+    }
+
+    @Test
+    void recordResetsTheHitTierAndCountsTheOthers() {
+        long state = ENGINE.record(ENGINE.record(0L, "comun"), "comun");
+        assertEquals(2, ENGINE.getCount(state, 0));
+        assertEquals(2, ENGINE.getCount(state, 1));
+
+        state = ENGINE.record(state, "rara");
+        assertEquals(0, ENGINE.getCount(state, 0));
+        assertEquals(3, ENGINE.getCount(state, 1));
+    }
+
+    @Test
+    void countersSaturateWithoutSpillingIntoTheNextTier() {
+        PityEngine engine = new PityEngine(List.of(
+                new PityEngine.Tier("a", 0, 0.0, 0),
+                new PityEngine.Tier("b", 0, 0.0, 0)));
+        long state = engine.setCount(0L, 0, PityEngine.MAX_COUNT);
+        state = engine.record(state, "none");
+        assertEquals(PityEngine.MAX_COUNT, engine.getCount(state, 0));
+        assertEquals(1, engine.getCount(state, 1));
+        assertEquals(0L, state >>> 32);
+    }
+
+    @Test
+    void rejectsMoreThanMaxTiers() {
+        List<PityEngine.Tier> tiers = List.of(
+                new PityEngine.Tier("a", 0, 0.0, 1), new PityEngine.Tier("b", 0, 0.0, 1),
+                new PityEngine.Tier("c", 0, 0.0, 1), new PityEngine.Tier("d", 0, 0.0, 1),
+                new PityEngine.Tier("e", 0, 0.0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new PityEngine(tiers));
+    }
+}
@@ -0,0 +1,58 @@
+package com.edtools.edtoolsperks.perks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RollRngTest {
+
+    private static final int[] BOUNDS = {1, 2, 3, 7, 10, 64, 1000, 1 << 30, Integer.MAX_VALUE};
+
+    // Seeds stored in roll_history were drawn from new SplittableRandom(seed); they must replay identically
+    @Test
+    void matchesSplittableRandomForStoredSeeds() {
+        RollRng rng = new RollRng(42L);
+        for (int i = 0; i < 10_000; i++) {
+            long seed = rng.nextSeed();
+            RandomGenerator stream = rng.forRoll(seed);
+            SplittableRandom expected = new SplittableRandom(seed);
+            for (int bound : BOUNDS) {
+                assertEquals(expected.nextInt(bound), stream.nextInt(bound));
+                assertEquals(expected.nextDouble(), stream.nextDouble());
+            }
+            assertEquals(expected.nextLong(), stream.nextLong());
+        }
+    }
+
+    @Test
+    void pityStreamIsSaltedAndSeparate() {
+        RollRng rng = new RollRng(7L);
+        RandomGenerator roll = rng.forRoll(123L);
+        RandomGenerator pity = rng.forPity(123L);
+        SplittableRandom expectedPity = new SplittableRandom(123L ^ 0x9E3779B97F4A7C15L);
+        SplittableRandom expectedRoll = new SplittableRandom(123L);
+
+        assertEquals(expectedPity.nextDouble(), pity.nextDouble());
+        assertEquals(expectedRoll.nextInt(10), roll.nextInt(10));
+    }
+
+    @Test
+    void reusesOneGeneratorPerThread() {
+        RollRng rng = new RollRng(1L);
+        assertSame(rng.forRoll(1L), rng.forRoll(2L));
+        assertEquals(new SplittableRandom(2L).nextLong(), rng.forRoll(2L).nextLong());
+    }
+
+    @Test
+    void fixedRootSeedRepeatsTheSession() {
+        RollRng first = new RollRng(99L);
+        RollRng second = new RollRng(99L);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.nextSeed(), second.nextSeed());
+        }
+    }
+}